@@ -0,0 +1,61 @@
+/*
+ * SPDX-License-Identifier: CDDL-1.0
+ *
+ * CDDL HEADER START
+ *
+ * This file and its contents are supplied under the terms of the
+ * Common Development and Distribution License ("CDDL"), version 1.0.
+ * You may only use this file in accordance with the terms of version
+ * 1.0 of the CDDL.
+ *
+ * A full copy of the text of the CDDL should have accompanied this
+ * source. A copy of the CDDL is also available via the Internet at
+ * http://www.illumos.org/license/CDDL.
+ *
+ * CDDL HEADER END
+ *
+ * Copyright 2026 Peter Tribble
+ *
+ */
+
+package uk.co.petertribble.life.bench;
+
+import uk.co.petertribble.life.PctEngine;
+import uk.co.petertribble.life.PctOptions;
+
+/**
+ * Helpers shared by the pctlife benchmarks.
+ */
+final class BenchSupport {
+
+    /**
+     * The seed used to generate random boards, so that every run of a
+     * benchmark sees the same boards.
+     */
+    static final long SEED = 20_260_101L;
+
+    private BenchSupport() {
+    }
+
+    /**
+     * Create an engine the same way the command line does, so that the
+     * engines are configured identically to a real run.
+     *
+     * @param engine the name of the engine, as given to -e
+     * @param boardSize the size of the board
+     * @param threads the number of threads to use
+     *
+     * @return a new engine
+     */
+    static PctEngine createEngine(final String engine, final int boardSize,
+				  final int threads) {
+	final String[] args = {"-e", engine, "-b", Integer.toString(boardSize),
+			       "-t", Integer.toString(threads)};
+	final PctOptions options = new PctOptions();
+	int i = 0;
+	while (i < args.length) {
+	    i = options.parseFlag(args, i);
+	}
+	return options.createEngine();
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * SPDX-License-Identifier: CDDL-1.0
+ *
+ * CDDL HEADER START
+ *
+ * This file and its contents are supplied under the terms of the
+ * Common Development and Distribution License ("CDDL"), version 1.0.
+ * You may only use this file in accordance with the terms of version
+ * 1.0 of the CDDL.
+ *
+ * A full copy of the text of the CDDL should have accompanied this
+ * source. A copy of the CDDL is also available via the Internet at
+ * http://www.illumos.org/license/CDDL.
+ *
+ * CDDL HEADER END
+ *
+ * Copyright 2026 Peter Tribble
+ *
+ */
+
+package uk.co.petertribble.life.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.co.petertribble.life.PctEngine;
+import uk.co.petertribble.life.PctPattern;
+
+/**
+ * Measure the time taken to load a large pattern file, in each of the
+ * supported formats. The file is generated from a seeded random pattern
+ * before the benchmark starts.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LoadBenchmark {
+
+    /** The engine to load the pattern into. */
+    @Param({"int", "bit"})
+    public String engine;
+
+    /** The size in cells of the pattern, and the board. */
+    @Param({"512", "2048"})
+    public int patternSize;
+
+    /** The format of the pattern file. */
+    @Param({"life105", "life106", "rle"})
+    public String format;
+
+    /** The fraction of the pattern covered by live cells. */
+    @Param("0.3")
+    public double density;
+
+    /** The engine under test. */
+    private PctEngine board;
+    /** The generated pattern file. */
+    private File pattern;
+
+    /**
+     * Create the engine, and write the pattern file.
+     *
+     * @throws IOException if the pattern file cannot be written
+     */
+    @Setup(Level.Trial)
+    public void createPattern() throws IOException {
+	board = BenchSupport.createEngine(engine, patternSize, 1);
+	pattern = File.createTempFile("pctlife", ".lif");
+	final boolean[][] cells = new boolean[patternSize][patternSize];
+	final Random random = new Random(BenchSupport.SEED);
+	for (int j = 0; j < patternSize; j++) {
+	    for (int i = 0; i < patternSize; i++) {
+		cells[i][j] = random.nextDouble() < density;
+	    }
+	}
+	try (PrintWriter output = new PrintWriter(
+			Files.newBufferedWriter(pattern.toPath()))) {
+	    if ("life106".equals(format)) {
+		writeLife106(output, cells);
+	    } else if ("rle".equals(format)) {
+		writeRle(output, cells);
+	    } else {
+		writeLife105(output, cells);
+	    }
+	}
+    }
+
+    private void writeLife105(final PrintWriter output,
+			      final boolean[][] cells) {
+	output.println("#Life 1.05");
+	output.println("#P " + (-patternSize / 2 - 1) + " "
+		       + (-patternSize / 2));
+	final StringBuilder sb = new StringBuilder(patternSize);
+	for (int j = 0; j < patternSize; j++) {
+	    sb.setLength(0);
+	    for (int i = 0; i < patternSize; i++) {
+		sb.append(cells[i][j] ? '*' : '.');
+	    }
+	    output.println(sb);
+	}
+    }
+
+    private void writeLife106(final PrintWriter output,
+			      final boolean[][] cells) {
+	output.println("#Life 1.06");
+	for (int j = 0; j < patternSize; j++) {
+	    for (int i = 0; i < patternSize; i++) {
+		if (cells[i][j]) {
+		    output.println((i - patternSize / 2) + " "
+				   + (j - patternSize / 2));
+		}
+	    }
+	}
+    }
+
+    private void writeRle(final PrintWriter output,
+			  final boolean[][] cells) {
+	output.println("x = " + patternSize + ", y = " + patternSize
+		       + ", rule = B3/S23");
+	for (int j = 0; j < patternSize; j++) {
+	    final StringBuilder sb = new StringBuilder();
+	    int i = 0;
+	    while (i < patternSize) {
+		final boolean alive = cells[i][j];
+		int run = 0;
+		while (i < patternSize && cells[i][j] == alive) {
+		    i++;
+		    run++;
+		}
+		if (run > 1) {
+		    sb.append(run);
+		}
+		sb.append(alive ? 'o' : 'b');
+	    }
+	    sb.append(j == patternSize - 1 ? '!' : '$');
+	    output.println(sb);
+	}
+    }
+
+    /**
+     * Remove the pattern file.
+     *
+     * @throws IOException if the pattern file cannot be removed
+     */
+    @TearDown(Level.Trial)
+    public void removePattern() throws IOException {
+	Files.delete(pattern.toPath());
+    }
+
+    /**
+     * Load the pattern.
+     *
+     * @return whether the pattern loaded
+     */
+    @Benchmark
+    public boolean load() {
+	return PctPattern.load(board, pattern);
+    }
+}
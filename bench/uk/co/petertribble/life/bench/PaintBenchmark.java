@@ -0,0 +1,122 @@
+/*
+ * SPDX-License-Identifier: CDDL-1.0
+ *
+ * CDDL HEADER START
+ *
+ * This file and its contents are supplied under the terms of the
+ * Common Development and Distribution License ("CDDL"), version 1.0.
+ * You may only use this file in accordance with the terms of version
+ * 1.0 of the CDDL.
+ *
+ * A full copy of the text of the CDDL should have accompanied this
+ * source. A copy of the CDDL is also available via the Internet at
+ * http://www.illumos.org/license/CDDL.
+ *
+ * CDDL HEADER END
+ *
+ * Copyright 2026 Peter Tribble
+ *
+ */
+
+package uk.co.petertribble.life.bench;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.co.petertribble.life.PctBoard;
+import uk.co.petertribble.life.PctEngine;
+import uk.co.petertribble.life.PctPattern;
+
+/**
+ * Measure the time taken to paint the whole board into an offscreen image,
+ * for a range of cell sizes and gaps, with and without raster mode.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Benchmark)
+public class PaintBenchmark {
+
+    /** The engine holding the board. */
+    @Param({"int", "bit"})
+    public String engine;
+
+    /** The size in cells of the board. */
+    @Param({"128", "512"})
+    public int boardSize;
+
+    /** The size in pixels of each cell. */
+    @Param({"1", "5"})
+    public int cellSize;
+
+    /** The gap in pixels between cells. */
+    @Param({"0", "1"})
+    public int cellGap;
+
+    /** Whether to paint by writing pixels into an image. */
+    @Param({"false", "true"})
+    public boolean raster;
+
+    /** The fraction of the board covered by live cells. */
+    @Param("0.3")
+    public double density;
+
+    /** The board under test. */
+    private PctBoard board;
+    /** The image to paint into. */
+    private BufferedImage image;
+    /** The graphics context of the image. */
+    private Graphics2D graphics;
+
+    /**
+     * Create and fill the board, and the image to paint it into.
+     */
+    @Setup(Level.Trial)
+    public void createBoard() {
+	final PctEngine pengine = BenchSupport.createEngine(engine,
+							    boardSize, 1);
+	PctPattern.randomize(pengine, density, new Random(BenchSupport.SEED));
+	board = new PctBoard(pengine, cellSize, cellGap);
+	board.setRaster(raster);
+	final int size = boardSize * (cellSize + cellGap);
+	// the view starts out no bigger than the screen
+	board.setSize(size, size);
+	image = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+	graphics = image.createGraphics();
+    }
+
+    /**
+     * Release the graphics context.
+     */
+    @TearDown(Level.Trial)
+    public void dispose() {
+	graphics.dispose();
+    }
+
+    /**
+     * Paint the whole board.
+     *
+     * @return the image painted into
+     */
+    @Benchmark
+    public BufferedImage paint() {
+	board.paint(graphics);
+	return image;
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * SPDX-License-Identifier: CDDL-1.0
+ *
+ * CDDL HEADER START
+ *
+ * This file and its contents are supplied under the terms of the
+ * Common Development and Distribution License ("CDDL"), version 1.0.
+ * You may only use this file in accordance with the terms of version
+ * 1.0 of the CDDL.
+ *
+ * A full copy of the text of the CDDL should have accompanied this
+ * source. A copy of the CDDL is also available via the Internet at
+ * http://www.illumos.org/license/CDDL.
+ *
+ * CDDL HEADER END
+ *
+ * Copyright 2026 Peter Tribble
+ *
+ */
+
+package uk.co.petertribble.life.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.co.petertribble.life.PctEngine;
+import uk.co.petertribble.life.PctPattern;
+import uk.co.petertribble.life.PctRule;
+
+/**
+ * Measure the time taken by each engine to compute a generation, for a
+ * range of board sizes, densities, and rules. Every iteration starts again from
+ * the same seeded random board, so that the board doesn't settle down as
+ * the benchmark runs.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StepBenchmark {
+
+    /** The engine to measure. */
+    @Param({"int", "bit", "tile", "sparse", "hash", "ltl", "gen", "vector",
+	    "offheap", "block", "change"})
+    public String engine;
+
+    /** The size in cells of the board. */
+    @Param({"128", "512", "2048"})
+    public int boardSize;
+
+    /** The fraction of the board covered by live cells. */
+    @Param({"0.15", "0.5"})
+    public double density;
+
+    /**
+     * The rule, as a rulestring. Other rules can be compared by overriding
+     * this, for example with -p rule=B3/S23,B36/S23,B3678/S34678,B2/S.
+     * Larger than Life rules such as R5,C0,M1,S34..58,B34..45,NM need
+     * -p engine=ltl, and Generations rules such as B2/S/C3 need
+     * -p engine=gen.
+     */
+    @Param("B3/S23")
+    public String rule;
+
+    /** The number of threads used by the engine. */
+    @Param("1")
+    public int threads;
+
+    /** The engine under test. */
+    private PctEngine board;
+
+    /**
+     * Create the engine.
+     */
+    @Setup(Level.Trial)
+    public void createBoard() {
+	board = BenchSupport.createEngine(engine, boardSize, threads);
+	board.setRule(PctRule.parse(rule));
+    }
+
+    /**
+     * Fill the board with the same random pattern.
+     */
+    @Setup(Level.Iteration)
+    public void fillBoard() {
+	PctPattern.randomize(board, density, new Random(BenchSupport.SEED));
+    }
+
+    /**
+     * Compute one generation.
+     */
+    @Benchmark
+    public void step() {
+	board.step();
+    }
+}
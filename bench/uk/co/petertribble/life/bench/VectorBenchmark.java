@@ -0,0 +1,104 @@
+/*
+ * SPDX-License-Identifier: CDDL-1.0
+ *
+ * CDDL HEADER START
+ *
+ * This file and its contents are supplied under the terms of the
+ * Common Development and Distribution License ("CDDL"), version 1.0.
+ * You may only use this file in accordance with the terms of version
+ * 1.0 of the CDDL.
+ *
+ * A full copy of the text of the CDDL should have accompanied this
+ * source. A copy of the CDDL is also available via the Internet at
+ * http://www.illumos.org/license/CDDL.
+ *
+ * CDDL HEADER END
+ *
+ * Copyright 2026 Peter Tribble
+ *
+ */
+
+package uk.co.petertribble.life.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.co.petertribble.life.PctBands;
+import uk.co.petertribble.life.PctPattern;
+import uk.co.petertribble.life.PctRule;
+import uk.co.petertribble.life.PctVectorEngine;
+
+/**
+ * Compare the SIMD kernel of the vector engine against the plain loops it
+ * falls back to, on the same flat arrays. The SIMD kernel needs the
+ * incubating Vector API, so this must be run on java 17 or later, with
+ * -jvm pointing at it and -jvmArgsAppend --add-modules=jdk.incubator.vector.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class VectorBenchmark {
+
+    /** The kernel to measure, scalar or simd. */
+    @Param({"scalar", "simd"})
+    public String kernel;
+
+    /** The size in cells of the board. */
+    @Param({"128", "512", "2048"})
+    public int boardSize;
+
+    /** The fraction of the board covered by live cells. */
+    @Param({"0.15", "0.5"})
+    public double density;
+
+    /** The rule, as a rulestring. */
+    @Param("B3/S23")
+    public String rule;
+
+    /** The engine under test. */
+    private PctVectorEngine board;
+
+    /**
+     * Create the engine, refusing to run the simd kernel if it would
+     * quietly fall back to the plain loops.
+     */
+    @Setup(Level.Trial)
+    public void createBoard() {
+	final boolean simd = "simd".equals(kernel);
+	board = new PctVectorEngine(boardSize, new PctBands(1), simd);
+	if (simd && !board.isVectorised()) {
+	    throw new IllegalStateException("Vector API not available");
+	}
+	board.setRule(PctRule.parse(rule));
+    }
+
+    /**
+     * Fill the board with the same random pattern.
+     */
+    @Setup(Level.Iteration)
+    public void fillBoard() {
+	PctPattern.randomize(board, density, new Random(BenchSupport.SEED));
+    }
+
+    /**
+     * Compute one generation.
+     */
+    @Benchmark
+    public void step() {
+	board.step();
+    }
+}
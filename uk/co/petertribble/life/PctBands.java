@@ -0,0 +1,126 @@
+/*
+ * SPDX-License-Identifier: CDDL-1.0
+ *
+ * CDDL HEADER START
+ *
+ * This file and its contents are supplied under the terms of the
+ * Common Development and Distribution License ("CDDL"), version 1.0.
+ * You may only use this file in accordance with the terms of version
+ * 1.0 of the CDDL.
+ *
+ * A full copy of the text of the CDDL should have accompanied this
+ * source. A copy of the CDDL is also available via the Internet at
+ * http://www.illumos.org/license/CDDL.
+ *
+ * CDDL HEADER END
+ *
+ * Copyright 2026 Peter Tribble
+ *
+ */
+
+package uk.co.petertribble.life;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Split the rows of a board into bands and run a task over each band, in
+ * parallel on a ForkJoinPool if more than one thread has been asked for.
+ */
+public final class PctBands {
+
+    /**
+     * The number of bands each thread's share of the rows is split into, so
+     * that a thread that finishes early can steal work from the others.
+     */
+    private static final int BANDS_PER_THREAD = 4;
+
+    /** The number of threads to use. */
+    private final int threads;
+    /** The pool to run bands on, null if there is only one thread. */
+    private final ForkJoinPool pool;
+
+    /**
+     * A task to be run over a band of rows.
+     */
+    @FunctionalInterface
+    public interface Band {
+	/**
+	 * Run the task over the given rows.
+	 *
+	 * @param from the first row of the band
+	 * @param to one more than the last row of the band
+	 */
+	void run(int from, int to);
+    }
+
+    /**
+     * Create a PctBands that will use the given number of threads.
+     *
+     * @param nthreads the number of threads to run bands on
+     */
+    public PctBands(final int nthreads) {
+	threads = nthreads;
+	pool = threads > 1 ? new ForkJoinPool(threads) : null;
+    }
+
+    /**
+     * Get the number of threads bands will be run on.
+     *
+     * @return the number of threads
+     */
+    public int getThreads() {
+	return threads;
+    }
+
+    /**
+     * Run the given task over the given range of rows, returning only once
+     * every band has completed.
+     *
+     * @param from the first row
+     * @param to one more than the last row
+     * @param band the task to run over each band
+     */
+    public void run(final int from, final int to, final Band band) {
+	if (pool == null) {
+	    band.run(from, to);
+	} else {
+	    final int minRows = Math.max(1,
+			    (to - from) / (threads * BANDS_PER_THREAD));
+	    pool.invoke(new BandTask(from, to, minRows, band));
+	}
+    }
+
+    /*
+     * Split a range of rows in two until the bands are small enough.
+     */
+    private static final class BandTask extends RecursiveAction {
+
+	private static final long serialVersionUID = 1L;
+
+	private final int from;
+	private final int to;
+	private final int minRows;
+	private final transient Band band;
+
+	BandTask(final int nfrom, final int nto, final int nminRows,
+		 final Band nband) {
+	    super();
+	    from = nfrom;
+	    to = nto;
+	    minRows = nminRows;
+	    band = nband;
+	}
+
+	@Override
+	protected void compute() {
+	    if (to - from <= minRows) {
+		band.run(from, to);
+	    } else {
+		final int split = (from + to) >>> 1;
+		invokeAll(new BandTask(from, split, minRows, band),
+			  new BandTask(split, to, minRows, band));
+	    }
+	}
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ * SPDX-License-Identifier: CDDL-1.0
+ *
+ * CDDL HEADER START
+ *
+ * This file and its contents are supplied under the terms of the
+ * Common Development and Distribution License ("CDDL"), version 1.0.
+ * You may only use this file in accordance with the terms of version
+ * 1.0 of the CDDL.
+ *
+ * A full copy of the text of the CDDL should have accompanied this
+ * source. A copy of the CDDL is also available via the Internet at
+ * http://www.illumos.org/license/CDDL.
+ *
+ * CDDL HEADER END
+ *
+ * Copyright 2026 Peter Tribble
+ *
+ */
+
+package uk.co.petertribble.life;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Run pctlife without a display, for a given number of generations as fast
+ * as possible, and report how long it took.
+ */
+public final class PctBatch {
+
+    /**
+     * The default number of generations to run.
+     */
+    private static final long DEF_GENERATIONS = 1000L;
+
+    private PctBatch() {
+    }
+
+    /**
+     * Run a batch Life game. The supported flags are those handled by
+     * PctOptions, plus:
+     * -n The number of generations to run
+     * -o A file to save the final board to
+     * followed by an optional pattern or checkpoint file. Restoring a
+     * checkpoint carries on counting generations from where it was saved.
+     * With -c, a checkpoint is saved periodically and at the end of the run.
+     * With -y, each time the board settles into a cycle it's reported; the
+     * run then carries on, stops, or carries on with a new random soup.
+     * The cell size and gap flags are accepted, but ignored.
+     *
+     * @param args command line arguments
+     */
+    public static void main(final String[] args) {
+	final PctOptions options = new PctOptions();
+	long generations = DEF_GENERATIONS;
+	File outfile = null;
+	int i = 0;
+	while (i < args.length) {
+	    if ("-n".equals(args[i])) {
+		++i;
+		PctOptions.checkArg(args, i);
+		try {
+		    generations = Long.parseLong(args[i]);
+		} catch (NumberFormatException ex) {
+		    PctOptions.bailOut("Invalid generation count!");
+		}
+		if (generations < 0) {
+		    PctOptions.bailOut("Generation count too small!");
+		}
+		++i;
+	    } else if ("-o".equals(args[i])) {
+		++i;
+		PctOptions.checkArg(args, i);
+		outfile = new File(args[i]);
+		++i;
+	    } else {
+		final int next = options.parseFlag(args, i);
+		if (next == i) {
+		    break;
+		}
+		i = next;
+	    }
+	}
+
+	final PctEngine engine = options.createEngine();
+	long first = 0L;
+	if (i < args.length) {
+	    final File fin = new File(args[i]);
+	    if (!fin.exists()) {
+		PctOptions.bailOut("File " + fin + " does not exist!");
+	    }
+	    if (PctCheckpoint.isCheckpoint(fin)) {
+		first = restore(engine, fin);
+	    } else if (!PctPattern.load(engine, fin)) {
+		PctOptions.bailOut("Failed to load pattern");
+	    }
+	} else {
+	    PctPattern.randomize(engine, options.getCellDensity());
+	}
+
+	final long perStep = engine.getGenerationsPerStep();
+	final long steps = (generations + perStep - 1) / perStep;
+	final File ckfile = options.getCheckpointFile();
+	// one snapshot is reused for every checkpoint
+	final PctSnapshot cksnapshot = ckfile == null ? null
+	    : new PctSnapshot(engine.getBoardSize());
+	final long ckinterval = TimeUnit.SECONDS.toNanos(
+					options.getCheckpointInterval());
+	final String cycleAction = options.getCycleAction();
+	final PctCycleDetector detector = cycleAction == null ? null
+	    : new PctCycleDetector(engine.getBoardSize());
+	final long start = System.nanoTime();
+	long nextCheckpoint = start + ckinterval;
+	long s = 0L;
+	while (s < steps) {
+	    if (detector != null && detector.isEmpty()) {
+		detector.update(engine, first + s * perStep);
+	    }
+	    engine.step();
+	    s++;
+	    final long generation = first + s * perStep;
+	    if (ckfile != null && System.nanoTime() - nextCheckpoint >= 0L) {
+		checkpoint(engine, cksnapshot, generation, ckfile);
+		nextCheckpoint = System.nanoTime() + ckinterval;
+	    }
+	    if (detector != null && detector.update(engine, generation)) {
+		System.out.println(detector.getReport()); // NOPMD
+		if (PctCycleDetector.PAUSE.equals(cycleAction)) {
+		    break;
+		}
+		if (PctCycleDetector.RESTART.equals(cycleAction)) {
+		    // the new soup counts generations from zero
+		    PctPattern.randomize(engine, options.getCellDensity());
+		    first = -s * perStep;
+		    detector.reset();
+		}
+	    }
+	}
+	final long elapsed = System.nanoTime() - start;
+
+	final double secs = elapsed / 1.0e9d;
+	final long done = s * perStep;
+	System.out.println("generations: " + done); // NOPMD
+	System.out.printf("wall time: %.3f s%n", secs); // NOPMD
+	System.out.printf("gens/sec: %.1f%n", // NOPMD
+			  secs > 0.0d ? done / secs : 0.0d);
+	System.out.println("population: " // NOPMD
+			   + engine.getPopulation());
+	if (engine.getActivity() != null) {
+	    System.out.println("activity: " // NOPMD
+			       + engine.getActivity());
+	}
+
+	if (ckfile != null) {
+	    checkpoint(engine, cksnapshot, first + s * perStep, ckfile);
+	}
+	if (outfile != null) {
+	    try {
+		PctPattern.save(engine, outfile);
+	    } catch (IOException ioe) {
+		PctOptions.bailOut("Failed to save board to " + outfile);
+	    }
+	}
+    }
+
+    /*
+     * Restore a checkpoint, returning the generation it was saved at.
+     */
+    private static long restore(final PctEngine engine, final File fin) {
+	try {
+	    final PctSnapshot saved = PctCheckpoint.load(fin);
+	    if (saved.getBoardSize() != engine.getBoardSize()) {
+		PctOptions.bailOut("Checkpoint board size doesn't match!");
+	    }
+	    saved.copyTo(engine);
+	    return saved.getGeneration();
+	} catch (IOException | IllegalArgumentException e) {
+	    PctOptions.bailOut("Failed to restore checkpoint: "
+			       + e.getMessage());
+	}
+	return 0L;
+    }
+
+    /*
+     * Save a checkpoint, copying the board into the given snapshot first.
+     */
+    private static void checkpoint(final PctEngine engine,
+				   final PctSnapshot snapshot,
+				   final long generation, final File ckfile) {
+	snapshot.copyFrom(engine, generation);
+	try {
+	    PctCheckpoint.save(snapshot, ckfile);
+	} catch (IOException ioe) {
+	    System.err.println("Checkpoint failed: " // NOPMD
+			       + ioe.getMessage());
+	}
+    }
+}
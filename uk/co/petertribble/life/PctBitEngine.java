@@ -0,0 +1,290 @@
+/*
+ * SPDX-License-Identifier: CDDL-1.0
+ *
+ * CDDL HEADER START
+ *
+ * This file and its contents are supplied under the terms of the
+ * Common Development and Distribution License ("CDDL"), version 1.0.
+ * You may only use this file in accordance with the terms of version
+ * 1.0 of the CDDL.
+ *
+ * A full copy of the text of the CDDL should have accompanied this
+ * source. A copy of the CDDL is also available via the Internet at
+ * http://www.illumos.org/license/CDDL.
+ *
+ * CDDL HEADER END
+ *
+ * Copyright 2026 Peter Tribble
+ *
+ */
+
+package uk.co.petertribble.life;
+
+import java.util.Arrays;
+
+/**
+ * A pctlife engine that packs 64 cells into each long, and computes the
+ * next generation for a whole word at a time using bit-parallel adders.
+ *
+ * <p>Each column of the board, including the invisible 1-cell border, is
+ * held as a row of longs, with bit y of the row holding the cell at y. There
+ * is a row of dead cells beyond the border at each side, and an extra dead
+ * word at the end of each row, so that the inner loop never has to check
+ * whether it has reached the edge.
+ */
+public final class PctBitEngine implements PctEngine {
+
+    /** The size in cells of the board. */
+    private final int boardSize;
+    /** The number of words holding live cells in each row. */
+    private final int words;
+    /** The mask of valid cells in the last word of each row. */
+    private final long lastMask;
+
+    /**
+     * The current generation, as packed rows.
+     */
+    private long[][] cells;
+    /**
+     * The next generation, as packed rows.
+     */
+    private long[][] next;
+
+    /** The rule used to compute each generation. */
+    private PctRule rule = PctRule.CONWAY;
+    /** Whether the edges wrap round, with the border as a halo. */
+    private boolean wrapped;
+
+    /** The bands to split the work of each step into. */
+    private final PctBands bands;
+    /** Compute a band of rows of the next generation. */
+    private final PctBands.Band stepBand = this::stepRows;
+
+    /**
+     * Construct a new PctBitEngine of the given size.
+     *
+     * @param nboardSize the size of the board
+     */
+    public PctBitEngine(final int nboardSize) {
+	this(nboardSize, new PctBands(1));
+    }
+
+    /**
+     * Construct a new PctBitEngine of the given size, splitting the work of
+     * each step into bands of rows.
+     *
+     * @param nboardSize the size of the board
+     * @param nbands the bands to split each step into
+     */
+    public PctBitEngine(final int nboardSize, final PctBands nbands) {
+	boardSize = nboardSize;
+	bands = nbands;
+	final int width = boardSize + 2;
+	words = (width + 63) / 64;
+	lastMask = width % 64 == 0 ? -1L : (1L << (width % 64)) - 1L;
+	cells = new long[boardSize + 4][words + 1];
+	next = new long[boardSize + 4][words + 1];
+    }
+
+    @Override
+    public int getBoardSize() {
+	return boardSize;
+    }
+
+    @Override
+    public void clear() {
+	for (final long[] row : cells) {
+	    Arrays.fill(row, 0L);
+	}
+    }
+
+    @Override
+    public void setAlive(final int x, final int y) {
+	if (x >= 0 && x < boardSize && y >= 0 && y < boardSize) {
+	    cells[x + 2][(y + 1) >>> 6] |= 1L << (y + 1);
+	}
+    }
+
+    @Override
+    public void setAliveRun(final int x, final int y, final int length) {
+	if (y >= 0 && y < boardSize) {
+	    // every cell in the run is the same bit of the same word
+	    final int w = (y + 1) >>> 6;
+	    final long bit = 1L << (y + 1);
+	    final int to = (int) Math.min((long) x + length, boardSize);
+	    for (int i = Math.max(x, 0); i < to; i++) {
+		cells[i + 2][w] |= bit;
+	    }
+	}
+    }
+
+    @Override
+    public boolean isAlive(final int x, final int y) {
+	return (cells[x + 2][(y + 1) >>> 6] & (1L << (y + 1))) != 0L;
+    }
+
+    /*
+     * The cells are shifted down a bit to drop the border, and the bits
+     * beyond the board are cleared, as under wrapping they hold the halo.
+     */
+    @Override
+    public void copyRow(final int x, final long[] row, final int offset) {
+	final long[] src = cells[x + 2];
+	final int n = (boardSize + 63) >>> 6;
+	for (int w = 0; w < n; w++) {
+	    row[offset + w] = (src[w] >>> 1) | (src[w + 1] << 63);
+	}
+	if ((boardSize & 63) != 0) {
+	    row[offset + n - 1] &= (1L << (boardSize & 63)) - 1L;
+	}
+    }
+
+    @Override
+    public PctRule getRule() {
+	return rule;
+    }
+
+    @Override
+    public void setRule(final PctRule nrule) {
+	rule = nrule.require(1, 2);
+    }
+
+    /**
+     * Run one step of the game.
+     *
+     * <p>For each word, the eight neighbours of all 64 cells are added up
+     * in parallel into a 4-bit count, which is then used to decide which
+     * cells live. Each row only depends on the current generation, so
+     * bands of rows can be computed independently. If the board wraps
+     * round, the border is refreshed from the opposite edges first, and
+     * only the rows of the board itself are computed.
+     */
+    @Override
+    public void step() {
+	if (wrapped) {
+	    refreshHalo();
+	    bands.run(2, boardSize + 2, stepBand);
+	} else {
+	    bands.run(1, boardSize + 3, stepBand);
+	}
+	final long[][] tmp = cells;
+	cells = next;
+	next = tmp;
+    }
+
+    @Override
+    public boolean isWrapped() {
+	return wrapped;
+    }
+
+    @Override
+    public void setWrapped(final boolean nwrapped) {
+	if (wrapped && !nwrapped) {
+	    // the halo was only ever a copy of the opposite edges
+	    setBorder(false);
+	    Arrays.fill(cells[1], 0L);
+	    Arrays.fill(cells[boardSize + 2], 0L);
+	}
+	wrapped = nwrapped;
+    }
+
+    /*
+     * Set the border bits of each row of the board from the cells at the
+     * opposite end of the row, or clear them, then copy the edge rows,
+     * border bits included, into the opposite border rows.
+     */
+    private void refreshHalo() {
+	setBorder(true);
+	System.arraycopy(cells[boardSize + 1], 0, cells[1], 0, words + 1);
+	System.arraycopy(cells[2], 0, cells[boardSize + 2], 0, words + 1);
+    }
+
+    private void setBorder(final boolean wrap) {
+	final int last = boardSize >>> 6;
+	final int after = (boardSize + 1) >>> 6;
+	final long afterBit = 1L << (boardSize + 1);
+	for (int r = 2; r < boardSize + 2; r++) {
+	    final long[] row = cells[r];
+	    // bit 0 is the border before cell 0, bit n the last cell
+	    final long before = wrap ? (row[last] >>> boardSize) & 1L : 0L;
+	    row[0] = (row[0] & ~1L) | before;
+	    final long first = wrap ? (row[0] >>> 1) & 1L : 0L;
+	    row[after] = (row[after] & ~afterBit) | (first << (boardSize + 1));
+	}
+    }
+
+    private void stepRows(final int from, final int to) {
+	final PctRule nrule = rule;
+	for (int r = from; r < to; r++) {
+	    stepRow(nrule, cells[r - 1], cells[r], cells[r + 1], next[r]);
+	}
+    }
+
+    private void stepRow(final PctRule nrule, final long[] up,
+			 final long[] mid, final long[] down,
+			 final long[] out) {
+	long uprev = 0L;
+	long mprev = 0L;
+	long dprev = 0L;
+	long u = up[0];
+	long m = mid[0];
+	long d = down[0];
+	for (int w = 0; w < words; w++) {
+	    final long unext = up[w + 1];
+	    final long mnext = mid[w + 1];
+	    final long dnext = down[w + 1];
+	    out[w] = nextWord(nrule, u, (u << 1) | (uprev >>> 63),
+			      (u >>> 1) | (unext << 63),
+			      m, (m << 1) | (mprev >>> 63),
+			      (m >>> 1) | (mnext << 63),
+			      d, (d << 1) | (dprev >>> 63),
+			      (d >>> 1) | (dnext << 63));
+	    uprev = u;
+	    mprev = m;
+	    dprev = d;
+	    u = unext;
+	    m = mnext;
+	    d = dnext;
+	}
+	out[words - 1] &= lastMask;
+    }
+
+    /*
+     * Add up the eight neighbours of 64 cells at once, and apply the rules.
+     * The three cells above, and the three below, go through a full adder
+     * each; the two cells alongside through a half adder. The three 2-bit
+     * partial sums are then combined into a count of s0 + 2*s1 + 4*s2 + 8*s3,
+     * from which the rule picks the next state of each cell. The sparse
+     * engine uses this too.
+     */
+    static long nextWord(final PctRule rule,
+			 final long u, final long uw, final long ue,
+			 final long m, final long mw, final long me,
+			 final long d, final long dw, final long de) {
+	// the row above
+	final long ux = u ^ uw;
+	final long a0 = ux ^ ue;
+	final long a1 = (u & uw) | (ue & ux);
+	// alongside
+	final long b0 = mw ^ me;
+	final long b1 = mw & me;
+	// the row below
+	final long dx = d ^ dw;
+	final long c0 = dx ^ de;
+	final long c1 = (d & dw) | (de & dx);
+	// ones
+	final long ox = a0 ^ b0;
+	final long s0 = ox ^ c0;
+	final long k1 = (a0 & b0) | (c0 & ox);
+	// twos
+	final long tx = a1 ^ b1;
+	final long t0 = tx ^ c1;
+	final long t1 = (a1 & b1) | (c1 & tx);
+	final long s1 = t0 ^ k1;
+	final long k2 = t0 & k1;
+	// fours and eights
+	final long s2 = t1 ^ k2;
+	final long s3 = t1 & k2;
+	return rule.nextBits(m, s0, s1, s2, s3);
+    }
+}
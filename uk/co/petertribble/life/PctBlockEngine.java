@@ -0,0 +1,349 @@
+/*
+ * SPDX-License-Identifier: CDDL-1.0
+ *
+ * CDDL HEADER START
+ *
+ * This file and its contents are supplied under the terms of the
+ * Common Development and Distribution License ("CDDL"), version 1.0.
+ * You may only use this file in accordance with the terms of version
+ * 1.0 of the CDDL.
+ *
+ * A full copy of the text of the CDDL should have accompanied this
+ * source. A copy of the CDDL is also available via the Internet at
+ * http://www.illumos.org/license/CDDL.
+ *
+ * CDDL HEADER END
+ *
+ * Copyright 2026 Peter Tribble
+ *
+ */
+
+package uk.co.petertribble.life;
+
+import java.util.Arrays;
+
+/**
+ * A pctlife engine that holds the board as 2x2 blocks of cells, each in
+ * the low 4 bits of a byte, and computes the next generation of a block
+ * with a single lookup. The table has an entry for every 4x4 square of
+ * cells, giving the next state of the 2x2 block at its centre; it's
+ * compiled from the rule whenever the rule changes, so any rule runs at
+ * the same speed.
+ *
+ * <p>The centre of a 4x4 square made of four blocks is offset by a cell
+ * from the blocks themselves, so the blocks of alternate generations are
+ * offset by a cell from each other, as in the leaves of HashLife. The
+ * board, with its invisible 1-cell border, is surrounded by blocks of dead
+ * cells, and after each step any cells outside the border are cleared.
+ */
+public final class PctBlockEngine implements PctEngine {
+
+    /** The number of entries in the table, one for every 4x4 square. */
+    private static final int TABLE_SIZE = 1 << 16;
+
+    /** The size in cells of the board. */
+    private final int boardSize;
+    /** The size in cells of the board including its border. */
+    private final int universe;
+    /** The number of blocks along each side of the arrays. */
+    private final int blocks;
+
+    /** The current generation, a block in each byte. */
+    private byte[] cells;
+    /** The next generation, a block in each byte. */
+    private byte[] next;
+    /**
+     * Whether the blocks of the current generation are offset by a cell
+     * from those of generation 0, as 0 or 1.
+     */
+    private int phase;
+
+    /**
+     * For each phase and each block index, which of the 2 rows or columns
+     * of cells in the block are inside the border, as bits 1 and 0.
+     */
+    private final int[][] inside;
+    /**
+     * For each phase, the block indices where some of the cells are
+     * outside the border.
+     */
+    private final int[][] edges;
+
+    /** The rule used to compute each generation. */
+    private PctRule rule = PctRule.CONWAY;
+    /**
+     * The next state of the block at the centre of each 4x4 square, indexed
+     * by the blocks making up the square, top left, bottom left, top right,
+     * and bottom right, from the high bits down.
+     */
+    private byte[] table = compile(PctRule.CONWAY);
+    /** Whether the edges wrap round, with the border as a halo. */
+    private boolean wrapped;
+
+    /** The bands to split the work of each step into. */
+    private final PctBands bands;
+    /** Compute a band of rows of blocks. */
+    private final PctBands.Band stepBand = this::stepRows;
+
+    /**
+     * Construct a new PctBlockEngine of the given size.
+     *
+     * @param nboardSize the size of the board
+     */
+    public PctBlockEngine(final int nboardSize) {
+	this(nboardSize, new PctBands(1));
+    }
+
+    /**
+     * Construct a new PctBlockEngine of the given size, splitting the work
+     * of each step into bands of rows.
+     *
+     * @param nboardSize the size of the board
+     * @param nbands the bands to split each step into
+     */
+    public PctBlockEngine(final int nboardSize, final PctBands nbands) {
+	boardSize = nboardSize;
+	bands = nbands;
+	universe = boardSize + 2;
+	blocks = universe / 2 + 3;
+	cells = new byte[blocks * blocks];
+	next = new byte[blocks * blocks];
+	inside = new int[2][blocks];
+	edges = new int[2][];
+	for (int p = 0; p < 2; p++) {
+	    int nedges = 0;
+	    for (int b = 0; b < blocks; b++) {
+		final int u = firstCell(b, p);
+		inside[p][b] = (u >= 0 && u < universe ? 2 : 0)
+		    | (u + 1 >= 0 && u + 1 < universe ? 1 : 0);
+		if (inside[p][b] != 3) {
+		    nedges++;
+		}
+	    }
+	    edges[p] = new int[nedges];
+	    nedges = 0;
+	    for (int b = 0; b < blocks; b++) {
+		if (inside[p][b] != 3) {
+		    edges[p][nedges++] = b;
+		}
+	    }
+	}
+    }
+
+    /*
+     * The first of the 2 cells covered by a block, counting the border as
+     * cell 0, so that block 0 is always dead.
+     */
+    private static int firstCell(final int block, final int nphase) {
+	return 2 * block - 2 + nphase;
+    }
+
+    /*
+     * Build the table for a rule. For each 4x4 square, lay the four blocks
+     * out as cells, and work out the next state of each of the 4 cells at
+     * the centre from its 8 neighbours.
+     */
+    private static byte[] compile(final PctRule nrule) {
+	final byte[] ntable = new byte[TABLE_SIZE];
+	final int[][] square = new int[4][4];
+	for (int i = 0; i < TABLE_SIZE; i++) {
+	    for (int r = 0; r < 4; r++) {
+		for (int c = 0; c < 4; c++) {
+		    // the blocks are in the order nw, sw, ne, se
+		    final int block = (i >>> (12 - 8 * (c >> 1) - 4 * (r >> 1)))
+			& 0xf;
+		    square[r][c] = (block >>> bit(r & 1, c & 1)) & 1;
+		}
+	    }
+	    int result = 0;
+	    for (int r = 1; r < 3; r++) {
+		for (int c = 1; c < 3; c++) {
+		    int count = -square[r][c];
+		    for (int dr = -1; dr <= 1; dr++) {
+			for (int dc = -1; dc <= 1; dc++) {
+			    count += square[r + dr][c + dc];
+			}
+		    }
+		    result |= nrule.next(square[r][c], count)
+			<< bit(r - 1, c - 1);
+		}
+	    }
+	    ntable[i] = (byte) result;
+	}
+	return ntable;
+    }
+
+    /*
+     * The bit of a block holding the cell at the given row and column
+     * within it.
+     */
+    private static int bit(final int r, final int c) {
+	return 3 - 2 * r - c;
+    }
+
+    @Override
+    public int getBoardSize() {
+	return boardSize;
+    }
+
+    @Override
+    public void clear() {
+	Arrays.fill(cells, (byte) 0);
+    }
+
+    @Override
+    public void setAlive(final int x, final int y) {
+	if (x >= 0 && x < boardSize && y >= 0 && y < boardSize) {
+	    setCell(x + 1, y + 1, 1);
+	}
+    }
+
+    @Override
+    public boolean isAlive(final int x, final int y) {
+	return getCell(x + 1, y + 1) != 0;
+    }
+
+    /*
+     * Get and set cells by their position in the universe, border
+     * included, in the blocks of the current phase.
+     */
+    private int getCell(final int u, final int v) {
+	final int i = ((u + 2 - phase) >> 1) * blocks + ((v + 2 - phase) >> 1);
+	return (cells[i] >>> bit((u - phase) & 1, (v - phase) & 1)) & 1;
+    }
+
+    private void setCell(final int u, final int v, final int state) {
+	final int i = ((u + 2 - phase) >> 1) * blocks + ((v + 2 - phase) >> 1);
+	final int mask = 1 << bit((u - phase) & 1, (v - phase) & 1);
+	cells[i] = (byte) (state == 0 ? cells[i] & ~mask : cells[i] | mask);
+    }
+
+    @Override
+    public PctRule getRule() {
+	return rule;
+    }
+
+    @Override
+    public void setRule(final PctRule nrule) {
+	rule = nrule.require(1, 2);
+	table = compile(rule);
+    }
+
+    /**
+     * Run one step of the game.
+     *
+     * <p>Each block of the next generation is looked up from the four
+     * blocks under it. Going from phase 0 to phase 1 the new blocks are a
+     * cell down and right of the old ones, and going back to phase 0 a cell
+     * up and left, so the blocks under a new block are the ones at the same
+     * index and the index after, or the index before and the same index.
+     * The rows of blocks are split into bands. If the board wraps round,
+     * the border is refreshed from the opposite edges first.
+     */
+    @Override
+    public void step() {
+	if (wrapped) {
+	    refreshHalo();
+	}
+	if (phase == 0) {
+	    bands.run(0, blocks - 1, stepBand);
+	} else {
+	    bands.run(1, blocks, stepBand);
+	}
+	phase ^= 1;
+	final byte[] t = cells;
+	cells = next;
+	next = t;
+	clearOutside();
+    }
+
+    private void stepRows(final int from, final int to) {
+	final byte[] c = cells;
+	final byte[] n = next;
+	final byte[] t = table;
+	// how far up and left the blocks under a new block are
+	final int d = phase;
+	for (int bi = from; bi < to; bi++) {
+	    final int top = (bi - d) * blocks;
+	    final int bottom = top + blocks;
+	    final int out = bi * blocks + d;
+	    int west = (c[top] << 4) | c[bottom];
+	    for (int bj = 0; bj < blocks - 1; bj++) {
+		final int east = (c[top + bj + 1] << 4) | c[bottom + bj + 1];
+		n[out + bj] = t[(west << 8) | east];
+		west = east;
+	    }
+	}
+    }
+
+    /*
+     * Clear any cells of the new generation that are outside the border,
+     * as the rest of the universe is always dead.
+     */
+    private void clearOutside() {
+	final int[] in = inside[phase];
+	for (final int bi : edges[phase]) {
+	    for (int bj = 0; bj < blocks; bj++) {
+		cells[bi * blocks + bj] &= mask(in[bi], in[bj]);
+	    }
+	}
+	for (int bi = 0; bi < blocks; bi++) {
+	    for (final int bj : edges[phase]) {
+		cells[bi * blocks + bj] &= mask(in[bi], in[bj]);
+	    }
+	}
+    }
+
+    /*
+     * The bits of a block inside the border, given which of its rows and
+     * columns are.
+     */
+    private static int mask(final int rows, final int columns) {
+	int m = 0;
+	for (int r = 0; r < 2; r++) {
+	    for (int c = 0; c < 2; c++) {
+		if ((rows >> (1 - r) & 1) != 0
+			&& (columns >> (1 - c) & 1) != 0) {
+		    m |= 1 << bit(r, c);
+		}
+	    }
+	}
+	return m;
+    }
+
+    @Override
+    public boolean isWrapped() {
+	return wrapped;
+    }
+
+    @Override
+    public void setWrapped(final boolean nwrapped) {
+	if (wrapped && !nwrapped) {
+	    // the halo was only ever a copy of the opposite edges
+	    for (int u = 0; u < universe; u++) {
+		setCell(u, 0, 0);
+		setCell(u, universe - 1, 0);
+		setCell(0, u, 0);
+		setCell(universe - 1, u, 0);
+	    }
+	}
+	wrapped = nwrapped;
+    }
+
+    /*
+     * Copy the edge columns into the border columns on the opposite side,
+     * then the edge rows, border included, into the opposite border rows,
+     * which fills in the corners too. The cells are copied one at a time,
+     * as the border doesn't line up with the blocks.
+     */
+    private void refreshHalo() {
+	for (int u = 1; u <= boardSize; u++) {
+	    setCell(u, 0, getCell(u, boardSize));
+	    setCell(u, boardSize + 1, getCell(u, 1));
+	}
+	for (int v = 0; v < universe; v++) {
+	    setCell(0, v, getCell(boardSize, v));
+	    setCell(boardSize + 1, v, getCell(1, v));
+	}
+    }
+}
@@ -24,54 +24,146 @@ import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
-import java.awt.event.ActionEvent;
-import java.awt.event.ActionListener;
+import java.awt.GraphicsEnvironment;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.Toolkit;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
 import java.awt.geom.Rectangle2D;
-import java.io.BufferedReader;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.management.JMException;
+import javax.management.ObjectName;
 import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
 import javax.swing.Timer;
 
 /**
  * The main board for pctlife.
+ *
+ * <p>The simulation runs on its own thread, in a PctRunner. The board only
+ * ever displays snapshots published by the runner, which it samples on the
+ * event dispatch thread at a fixed frame rate, so painting and stepping
+ * never wait for each other, and the display rate is independent of the
+ * speed of the simulation.
+ *
+ * <p>The panel is a view onto the board, which can be dragged around with
+ * the mouse, and zoomed in and out with the wheel. Only the part of the
+ * board in view is painted, so the cost of painting depends on the size
+ * of the view rather than the board. Zoomed out below a pixel per cell,
+ * each pixel is shaded by the density of live cells under it.
  */
-public final class PctBoard extends JPanel implements ActionListener {
+public final class PctBoard extends JPanel {
 
     private static final long serialVersionUID = 1L;
 
+    /**
+     * The size in cells of the blocks that changed cells are gathered into,
+     * along the x axis; along the y axis each block is one 64-cell word.
+     */
+    private static final int DIRTY_BLOCK = 32;
+    /**
+     * The largest number of changed blocks that are painted separately;
+     * beyond this, they are merged into a single repaint.
+     */
+    private static final int MAX_DIRTY_RECTS = 32;
+    /** The largest scale that can be zoomed in to, in pixels per cell. */
+    private static final double MAX_SCALE = 64.0;
+    /** The factor each step of zooming in or out changes the scale by. */
+    private static final double ZOOM_STEP = Math.sqrt(2.0);
+    /** The largest initial size of the view, as a fraction of the screen. */
+    private static final double SCREEN_FRACTION = 0.8;
+    /** The largest initial size of the view if there's no screen. */
+    private static final int DEF_VIEW_SIZE = 1024;
+    /** The number of shades used to show the density of live cells. */
+    private static final int SHADES = 256;
+    /** The cell under a pixel that's in the gap between cells. */
+    private static final int GAP = -1;
+    /** The cell under a pixel that's off the board. */
+    private static final int OFF = -2;
+
     /** The initial colour of live cells. */
     private Color livecolor = Color.RED;
     /** The initial colour of dead cells. */
     private Color deadcolor = Color.black;
 
+    /**
+     * The colours of each state under a Generations rule, fading from the
+     * live colour to the dead colour as cells die, as RGB values. This is
+     * rebuilt when the colours or the number of states change.
+     */
+    private transient int[] ramp = new int[0];
+    /** The colours of each state, as Colors. */
+    private transient Color[] rampColors = new Color[0];
+    /**
+     * The colours used to shade the density of live cells when zoomed out,
+     * from the dead colour to the live colour, as RGB values. This is
+     * rebuilt when the colours change.
+     */
+    private transient int[] shades = new int[0];
+
     /** The current size in cells of the board. */
     private final int boardSize;
-    /** The current size in cells of the middle of the board. */
-    private final int boardMid;
-    /** The current cell size in pixels. */
-    private final int cellSize;
-    /** The gap left between cells as a double. */
-    private final double dcellGap;
+    /**
+     * The fraction of the distance from the start of one cell to the next
+     * covered by the cell, the rest being the gap.
+     */
+    private final double cellFraction;
+    /** The distance in pixels from the start of one cell to the next. */
+    private final int cellPitch;
 
+    /** The scale of the view, in pixels per cell. */
+    private double scale;
+    /** The x coordinate, in cells, of the left edge of the view. */
+    private double originX;
+    /** The y coordinate, in cells, of the top edge of the view. */
+    private double originY;
     /**
-     * A Timer, to update the model in a loop.
+     * The number of live cells in tiles of the board being shown, used to
+     * shade the board when zoomed out, and created when first needed.
      */
-    private Timer timer;
+    private transient PctPyramid pyramid;
 
     /**
-     * An array of int[] for the current generation.
+     * Whether to paint by writing pixels into an image, rather than filling
+     * a rectangle for each live cell.
+     */
+    private boolean raster;
+    /**
+     * The image the view is drawn into in raster mode, or when zoomed out,
+     * created when first needed and reused for every frame while the view
+     * stays the same size.
      */
-    private final int[][] oldgen;
+    private transient BufferedImage image;
+    /** The pixels of the raster image. */
+    private transient int[] pixels;
+    /** The first cell under each column of pixels. */
+    private transient int[] columnFrom;
+    /** The cell after the last one under each column of pixels. */
+    private transient int[] columnTo;
+
     /**
-     * An array of int[] for the next generation.
+     * The runner that owns the engine and computes each generation.
      */
-    private final int[][] newgen;
+    private final transient PctRunner runner;
+
     /**
-     * An array of boolean[] to record the liveness of a cell.
+     * The snapshot currently being displayed. This is only used on the
+     * event dispatch thread.
      */
-    private final boolean[][] labels;
+    private transient PctSnapshot shown;
+    /** A Timer, to show the latest snapshot at a fixed frame rate. */
+    private final Timer frameTimer;
+    /** The rectangles, in pixels, that changed in the last step. */
+    private final transient List<Rectangle> dirty = new ArrayList<>();
 
     /**
      * Construct a new PctBoard instance of the given size.
@@ -82,22 +174,49 @@ public final class PctBoard extends JPanel implements ActionListener {
      */
     public PctBoard(final int nboardSize, final int ncellSize,
 		    final int cellGap) {
-	super();
-	boardSize = nboardSize;
-	cellSize = ncellSize;
-	boardMid = boardSize / 2;
-	dcellGap = cellGap;
+	this(new PctIntEngine(nboardSize), ncellSize, cellGap);
+    }
 
-	oldgen = new int[boardSize + 2][boardSize + 2];
-	newgen = new int[boardSize + 2][boardSize + 2];
-	labels = new boolean[boardSize][boardSize];
+    /**
+     * Construct a new PctBoard instance using the given engine.
+     *
+     * @param nengine the engine to hold the cells and compute each generation
+     * @param ncellSize the size of each cell
+     * @param cellGap the gap left between cells
+     */
+    public PctBoard(final PctEngine nengine, final int ncellSize,
+		    final int cellGap) {
+	super();
+	boardSize = nengine.getBoardSize();
+	cellPitch = ncellSize + cellGap;
+	cellFraction = ncellSize / (double) cellPitch;
+	scale = cellPitch;
+	runner = new PctRunner(nengine);
+	shown = new PctSnapshot(boardSize);
+	shown.copyFrom(nengine, 0L);
+	frameTimer = new Timer(PctRunner.FRAME_MILLIS, e -> showLatest());
 
-	final Dimension dboard = new Dimension(boardSize * (cellSize + cellGap),
-					boardSize * (cellSize + cellGap));
+	final int vsize = Math.min(boardSize * cellPitch, maxViewSize());
+	final Dimension dboard = new Dimension(vsize, vsize);
 	setSize(dboard);
-	setMinimumSize(dboard);
 	setPreferredSize(dboard);
 	setBackground(Color.BLACK.brighter());
+	final ViewMouse mouse = new ViewMouse();
+	addMouseListener(mouse);
+	addMouseMotionListener(mouse);
+	addMouseWheelListener(mouse);
+    }
+
+    /*
+     * The largest the view should start out, so that the window fits on
+     * the screen however big the board is.
+     */
+    private static int maxViewSize() {
+	if (GraphicsEnvironment.isHeadless()) {
+	    return DEF_VIEW_SIZE;
+	}
+	final Dimension screen = Toolkit.getDefaultToolkit().getScreenSize();
+	return (int) (SCREEN_FRACTION * Math.min(screen.width, screen.height));
     }
 
     /**
@@ -106,30 +225,15 @@ public final class PctBoard extends JPanel implements ActionListener {
      * @param cellDensity the frcation of the board to be covered by cells
      */
     public void randomize(final double cellDensity) {
-	for (int i = 0; i < boardSize; i++) {
-	    for (int j = 0; j < boardSize; j++) {
-		oldgen[i + 1][j + 1] = Math.random() < cellDensity ? 1 : 0;
-		labels[i][j] = oldgen[i + 1][j + 1] == 1;
-	    }
-	}
-	repaint();
-    }
-
-    private void blank() {
-	for (int i = 0; i < boardSize + 2; i++) {
-	    for (int j = 0; j < boardSize + 2; j++) {
-		oldgen[i][j] = 0;
-	    }
-	}
-	for (int i = 0; i < boardSize; i++) {
-	    for (int j = 0; j < boardSize; j++) {
-		labels[i][j] = false;
-	    }
-	}
+	runner.execute(e -> {
+	    runner.resetGeneration();
+	    PctPattern.randomize(e, cellDensity);
+	});
     }
 
     /**
-     * Import a life pattern. If there's a problem, return false and the board
+     * Import a life pattern, or restore a checkpoint saved from a board of
+     * the same size. If there's a problem, return false and the board
      * will be left in an indeterminate state.
      *
      * @param infile the File to read in
@@ -137,142 +241,164 @@ public final class PctBoard extends JPanel implements ActionListener {
      * @return false in the event of a problem
      */
     public boolean loadPattern(final File infile) {
-	blank();
-	if (!infile.exists()) {
-	    return false;
-	}
-	int x = 0;
-	int xblock = 0;
-	int y = 0;
-	try (BufferedReader input =  Files.newBufferedReader(infile.toPath())) {
-	    String line;
+	if (PctCheckpoint.isCheckpoint(infile)) {
+	    final PctSnapshot saved;
 	    try {
-		line = input.readLine();
-		if (line == null || !line.startsWith("#Life")) {
-		    return false;
-		}
-		while ((line = input.readLine()) != null) {
-		    if (line.startsWith("#P")) {
-			final String[] ds = line.split("\\s+", 3);
-			try {
-			    x = boardMid + Integer.parseInt(ds[1]);
-			    xblock = x;
-			    y = boardMid + Integer.parseInt(ds[2]);
-			} catch (NumberFormatException nfe) {
-			    return false;
-			}
-		    } else if (!line.startsWith("#")) {
-			// skip any other directives like #R and #N
-			// read the pattern and populate the board
-			for (int i = 0; i < line.length(); i++) {
-			    final char c = line.charAt(i);
-			    if (c == '.') {
-				x++;
-			    } else if (c == '*') {
-				x++;
-				setAlive(x, y);
-			    }
-			}
-			// ready for the next line
-			y++;
-			x = xblock;
-		    }
-		}
+		saved = PctCheckpoint.load(infile);
 	    } catch (IOException ioe) {
 		return false;
 	    }
-	} catch (IOException ioe) {
-	    return false;
+	    if (saved.getBoardSize() != boardSize) {
+		return false;
+	    }
+	    return runner.call(e -> {
+		try {
+		    saved.copyTo(e);
+		} catch (IllegalArgumentException iae) {
+		    // the engine can't run the rule, and the board is unchanged
+		    return false;
+		}
+		runner.setGeneration(saved.getGeneration());
+		return true;
+	    });
 	}
-	repaint();
-	return true;
+	return runner.call(e -> {
+	    runner.resetGeneration();
+	    return PctPattern.load(e, infile);
+	});
     }
 
-    private void setAlive(final int iii, final int jjj) {
-	oldgen[iii + 1][jjj + 1] = 1;
-	labels[iii][jjj] = true;
+    /**
+     * Save the board currently displayed as a checkpoint, which can be
+     * restored with loadPattern(). This must be called on the event
+     * dispatch thread.
+     *
+     * @param outfile the File to write
+     *
+     * @throws IOException if the file cannot be written
+     */
+    public void saveCheckpoint(final File outfile) throws IOException {
+	PctCheckpoint.save(shown, outfile);
     }
 
     /**
-     * Run one step of the game.
+     * Register an MBean exposing statistics for this board, such as the
+     * time taken to step and paint it, with the platform MBean server as
+     * uk.co.petertribble.life:type=PctBoard, so that long runs can be
+     * watched with JConsole or Mission Control.
      *
-     * <p>Essentially, just add up the values of the neighbouring cells.
+     * @throws JMException if the MBean cannot be registered
+     */
+    public void registerMBean() throws JMException {
+	ManagementFactory.getPlatformMBeanServer().registerMBean(
+		runner.getStats(),
+		new ObjectName("uk.co.petertribble.life:type=PctBoard"));
+    }
+
+    /**
+     * Run one step of the game.
      */
     public void step() {
-	for (int i = 0; i < boardSize; i++) {
-	    for (int j = 0; j < boardSize; j++) {
-		newgen[i + 1][j + 1] = oldgen[i][j]
-		    + oldgen[i + 1][j]
-		    + oldgen[i + 2][j]
-		    + oldgen[i][j + 1]
-		    + oldgen[i + 2][j + 1]
-		    + oldgen[i][j + 2]
-		    + oldgen[i + 1][j + 2]
-		    + oldgen[i + 2][j + 2];
-	    }
+	runner.step();
+    }
+
+    /*
+     * Swap in the latest snapshot, if there is one, and repaint whatever
+     * changed since the last one shown.
+     */
+    private void showLatest() {
+	final PctSnapshot latest = runner.takeLatest();
+	if (latest == null) {
+	    return;
 	}
-	// do edges
-	for (int i = 0; i < boardSize; i++) {
-	    newgen[i + 1][0] = oldgen[i][0]
-		    + oldgen[i + 2][0]
-		    + oldgen[i][1]
-		    + oldgen[i + 1][1]
-		    + oldgen[i + 2][1];
-	    newgen[i + 1][boardSize + 1] = oldgen[i][boardSize + 1]
-		    + oldgen[i + 2][boardSize + 1]
-		    + oldgen[i][boardSize]
-		    + oldgen[i + 1][boardSize]
-		    + oldgen[i + 2][boardSize];
-	}
-	for (int j = 0; j < boardSize; j++) {
-		newgen[0][j + 1] = oldgen[0][j]
-		    + oldgen[0][j + 2]
-		    + oldgen[1][j]
-		    + oldgen[1][j + 1]
-		    + oldgen[1][j + 2];
-		newgen[boardSize + 1][j + 1] = oldgen[boardSize + 1][j]
-		    + oldgen[boardSize + 1][j + 2]
-		    + oldgen[boardSize][j]
-		    + oldgen[boardSize][j + 1]
-		    + oldgen[boardSize][j + 2];
-	}
-	// end edges
-	// do corners
-	newgen[0][0] = oldgen[0][1] + oldgen[1][1] + oldgen[1][0];
-	newgen[0][boardSize + 1] = oldgen[0][boardSize] + oldgen[1][boardSize]
-	    + oldgen[1][boardSize + 1];
-	newgen[boardSize + 1][0] = oldgen[boardSize][0] + oldgen[boardSize][1]
-	    + oldgen[boardSize + 1][1];
-	newgen[boardSize + 1][boardSize + 1] = oldgen[boardSize][boardSize + 1]
-	    + oldgen[boardSize + 1][boardSize] + oldgen[boardSize][boardSize];
-	// end corners
-	for (int i = 0; i < boardSize + 2; i++) {
-	    for (int j = 0; j < boardSize + 2; j++) {
-		if (oldgen[i][j] == 1) {
-		    oldgen[i][j] = isAlive(newgen[i][j]) ? 1 : 0;
-		} else {
-		    oldgen[i][j] = isBorn(newgen[i][j]) ? 1 : 0;
+	final PctSnapshot previous = shown;
+	shown = latest;
+	repaintChanges(previous, latest);
+	runner.recycle(previous);
+    }
+
+    /*
+     * Compare two snapshots a block at a time, gathering the changed cells
+     * in each block into their bounding rectangle, and repaint just those
+     * rectangles.
+     *
+     * The RepaintManager would merge separate repaint() calls into their
+     * bounding box, so on the event dispatch thread the rectangles are
+     * painted straight away instead. If there are a lot of them, it's
+     * cheaper to paint their bounding box in one go.
+     */
+    private void repaintChanges(final PctSnapshot before,
+				final PctSnapshot after) {
+	dirty.clear();
+	final Dimension d = getSize();
+	final Rectangle bounds = new Rectangle(0, 0, d.width, d.height);
+	// only the cells in view, unless the pyramid needs every change
+	final boolean all = pyramid != null;
+	final int xmin = all ? 0 : Math.max(0, (int) originX);
+	final int xmax = all ? boardSize : Math.min(boardSize,
+				(int) Math.ceil(originX + d.width / scale));
+	final int wmin = all ? 0 : Math.max(0, (int) originY) >>> 6;
+	final int wmax = all ? after.getWords() : Math.min(after.getWords(),
+			(int) Math.ceil(originY + d.height / scale + 63) >>> 6);
+	for (int bx = xmin; bx < xmax; bx += DIRTY_BLOCK) {
+	    final int x1 = Math.min(bx + DIRTY_BLOCK, xmax);
+	    for (int w = wmin; w < wmax; w++) {
+		int imin = -1;
+		int imax = -1;
+		long changed = 0L;
+		for (int i = bx; i < x1; i++) {
+		    final long diff = after.getChanges(before, i, w);
+		    if (diff != 0L) {
+			if (imin < 0) {
+			    imin = i;
+			}
+			imax = i;
+			changed |= diff;
+			if (all) {
+			    pyramid.update(i, w, before.getWord(i, w),
+					   after.getWord(i, w));
+			}
+		    }
+		}
+		if (imin >= 0) {
+		    final int jmin = w * 64
+			+ Long.numberOfTrailingZeros(changed);
+		    final int jmax = w * 64 + 63
+			- Long.numberOfLeadingZeros(changed);
+		    final Rectangle r = cellRect(imin, imax, jmin, jmax);
+		    if (r.intersects(bounds)) {
+			dirty.add(r);
+		    }
 		}
 	    }
 	}
-	for (int i = 0; i < boardSize; i++) {
-	    for (int j = 0; j < boardSize; j++) {
-		labels[i][j] = oldgen[i + 1][j + 1] == 1;
+	if (dirty.isEmpty()) {
+	    return;
+	}
+	if (dirty.size() > MAX_DIRTY_RECTS
+		|| !SwingUtilities.isEventDispatchThread()) {
+	    final Rectangle union = new Rectangle(dirty.get(0));
+	    for (final Rectangle r : dirty) {
+		union.add(r);
+	    }
+	    repaint(union);
+	} else {
+	    for (final Rectangle r : dirty) {
+		paintImmediately(r);
 	    }
 	}
-	repaint();
     }
 
     /*
-     * isAlive() and isBorn() are abstracted to allow extension to universes
-     * with different rules.
+     * The rectangle in pixels covering the given range of cells.
      */
-    private boolean isAlive(final int inear) {
-	return inear == 2 || inear == 3;
-    }
-
-    private boolean isBorn(final int inear) {
-	return inear == 3;
+    private Rectangle cellRect(final int imin, final int imax,
+			       final int jmin, final int jmax) {
+	final int px = (int) Math.floor((imin - originX) * scale);
+	final int py = (int) Math.floor((jmin - originY) * scale);
+	final int qx = (int) Math.ceil((imax + 1 - originX) * scale);
+	final int qy = (int) Math.ceil((jmax + 1 - originY) * scale);
+	return new Rectangle(px, py, qx - px, qy - py);
     }
 
     /**
@@ -292,6 +418,9 @@ public final class PctBoard extends JPanel implements ActionListener {
     public void setfg(final Color newColor) {
 	if (newColor != null) {
 	    livecolor = newColor;
+	    ramp = new int[0];
+	    shades = new int[0];
+	    repaint();
 	}
     }
 
@@ -312,6 +441,9 @@ public final class PctBoard extends JPanel implements ActionListener {
     public void setbg(final Color newColor) {
 	if (newColor != null) {
 	    deadcolor = newColor;
+	    ramp = new int[0];
+	    shades = new int[0];
+	    repaint();
 	}
     }
 
@@ -321,23 +453,15 @@ public final class PctBoard extends JPanel implements ActionListener {
      * @param idelay the starting delay in milliseconds.
      */
     public void startLoop(final int idelay) {
-	if (timer == null) {
-	    timer = new Timer(idelay, this);
-	}
-	timer.start();
+	runner.start(idelay);
+	frameTimer.start();
     }
 
     /**
      * Pause the game if it's running, restart it if paused.
      */
     public void stopstart() {
-	if (timer != null) {
-	    if (timer.isRunning()) {
-		timer.stop();
-	    } else {
-		timer.start();
-	    }
-	}
+	runner.stopstart();
     }
 
     /**
@@ -346,34 +470,500 @@ public final class PctBoard extends JPanel implements ActionListener {
      * @param idelay the desired delay in milliseconds.
      */
     public void setDelay(final int idelay) {
-	if (timer != null) {
-	    timer.setDelay(idelay);
+	runner.setDelay(idelay);
+    }
+
+    /**
+     * Run the game in turbo mode, with the given number of generations for
+     * each frame displayed, or flat out.
+     *
+     * @param generations the number of generations per frame, or 0 to run
+     * as fast as possible
+     */
+    public void setTurbo(final int generations) {
+	runner.setTurbo(generations);
+    }
+
+    /**
+     * Look for the board settling into a cycle, and then report it, pause,
+     * or restart with a new random soup.
+     *
+     * @param action PctCycleDetector.REPORT, PAUSE, or RESTART
+     * @param density the density of each new soup when restarting
+     */
+    public void detectCycles(final String action, final double density) {
+	runner.detectCycles(action, density);
+    }
+
+    /**
+     * Describe the last cycle the board was found to settle into.
+     *
+     * @return a description of the cycle, or null if none has been found
+     */
+    public String getCycleReport() {
+	return runner.getCycleReport();
+    }
+
+    /**
+     * Get the generation currently being displayed.
+     *
+     * @return the generation shown
+     */
+    public long getGeneration() {
+	return shown.getGeneration();
+    }
+
+    /**
+     * Get the scale of the view.
+     *
+     * @return the scale, in pixels per cell
+     */
+    public double getScale() {
+	return scale;
+    }
+
+    /**
+     * Zoom in a step, keeping the centre of the view where it is.
+     */
+    public void zoomIn() {
+	zoomAt(ZOOM_STEP, getWidth() / 2, getHeight() / 2);
+    }
+
+    /**
+     * Zoom out a step, keeping the centre of the view where it is.
+     */
+    public void zoomOut() {
+	zoomAt(1.0 / ZOOM_STEP, getWidth() / 2, getHeight() / 2);
+    }
+
+    /**
+     * Zoom out, or in, so that the whole board fits in the view.
+     */
+    public void zoomToFit() {
+	zoomAt(fitScale() / scale, getWidth() / 2, getHeight() / 2);
+    }
+
+    /**
+     * Zoom back to the cell size and gap the board was created with,
+     * keeping the centre of the view where it is.
+     */
+    public void zoomToActual() {
+	zoomAt(cellPitch / scale, getWidth() / 2, getHeight() / 2);
+    }
+
+    /*
+     * Change the scale by the given factor, within limits, keeping the
+     * cell under the given point where it is. The view can't be zoomed out
+     * further than it takes to fit the whole board in.
+     */
+    private void zoomAt(final double factor, final int px, final int py) {
+	final double cx = originX + px / scale;
+	final double cy = originY + py / scale;
+	scale = Math.max(Math.min(fitScale(), MAX_SCALE),
+			 Math.min(MAX_SCALE, scale * factor));
+	originX = cx - px / scale;
+	originY = cy - py / scale;
+	if (scale >= 1.0) {
+	    // it's only needed zoomed out, and costs a pass over every change
+	    pyramid = null;
+	}
+	clampView();
+	repaint();
+    }
+
+    /*
+     * The scale at which the whole board just fits in the view.
+     */
+    private double fitScale() {
+	return Math.max(1, Math.min(getWidth(), getHeight()))
+	    / (double) boardSize;
+    }
+
+    /*
+     * Move the view by the given number of pixels.
+     */
+    private void pan(final int dx, final int dy) {
+	originX += dx / scale;
+	originY += dy / scale;
+	clampView();
+	repaint();
+    }
+
+    /*
+     * Keep the view on the board. If the board is narrower than the view,
+     * it's centred.
+     */
+    private void clampView() {
+	originX = clampOrigin(originX, getWidth() / scale);
+	originY = clampOrigin(originY, getHeight() / scale);
+    }
+
+    private double clampOrigin(final double origin, final double cells) {
+	if (cells >= boardSize) {
+	    return (boardSize - cells) / 2;
+	}
+	return Math.max(0.0, Math.min(boardSize - cells, origin));
+    }
+
+    /**
+     * Choose whether to paint the board by writing the colour of each cell
+     * directly into the pixels of an image, which is then drawn in one go.
+     * This is much faster than filling a rectangle for each live cell when
+     * there are many cells.
+     *
+     * @param nraster true to paint using an image
+     */
+    public void setRaster(final boolean nraster) {
+	raster = nraster;
+	repaint();
+    }
+
+    /*
+     * Make sure the colour ramp has a colour for each state. Dead cells are
+     * in the dead colour, live cells in the live colour, and each dying
+     * state is a step further from the live colour towards the dead one.
+     */
+    private void updateRamp(final int states) {
+	if (ramp.length == states) {
+	    return;
+	}
+	ramp = new int[states];
+	rampColors = new Color[states];
+	ramp[0] = deadcolor.getRGB();
+	rampColors[0] = deadcolor;
+	for (int state = 1; state < states; state++) {
+	    final float f = (state - 1) / (float) (states - 1);
+	    rampColors[state] = new Color(
+		mix(livecolor.getRed(), deadcolor.getRed(), f),
+		mix(livecolor.getGreen(), deadcolor.getGreen(), f),
+		mix(livecolor.getBlue(), deadcolor.getBlue(), f));
+	    ramp[state] = rampColors[state].getRGB();
+	}
+    }
+
+    private static int mix(final int from, final int to, final float f) {
+	return Math.round(from + (to - from) * f);
+    }
+
+    /*
+     * Make sure there are shades from the dead colour to the live colour
+     * to show the density of live cells.
+     */
+    private void updateShades() {
+	if (shades.length == SHADES) {
+	    return;
+	}
+	shades = new int[SHADES];
+	for (int k = 0; k < SHADES; k++) {
+	    final float f = k / (float) (SHADES - 1);
+	    shades[k] = new Color(
+		mix(deadcolor.getRed(), livecolor.getRed(), f),
+		mix(deadcolor.getGreen(), livecolor.getGreen(), f),
+		mix(deadcolor.getBlue(), livecolor.getBlue(), f)).getRGB();
 	}
     }
 
+    /*
+     * The time taken by each paint is recorded in the statistics.
+     */
     @Override
     public void paint(final Graphics g) {
+	final long t0 = System.nanoTime();
+	paintCells(g);
+	runner.getStats().recordPaint(System.nanoTime() - t0);
+    }
+
+    /*
+     * Only the part of the board that's in view, and within the clip, is
+     * drawn, so that repainting costs no more than the pixels repainted
+     * however big the board is. The cells come from the snapshot being
+     * shown, never from the engine.
+     */
+    private void paintCells(final Graphics g) {
+	final PctSnapshot snapshot = shown;
 	final Graphics2D gr2 = (Graphics2D) g;
 	final Dimension d = getSize();
+	Rectangle clip = g.getClipBounds();
+	if (clip == null) {
+	    clip = new Rectangle(0, 0, d.width, d.height);
+	}
+	clip = clip.intersection(new Rectangle(0, 0, d.width, d.height));
+	if (clip.isEmpty()) {
+	    return;
+	}
+	clampView();
+	final int states = snapshot.getRule().getStates();
+	updateRamp(states);
+	if (scale < 1.0) {
+	    paintDensity(gr2, d, clip, snapshot);
+	    return;
+	}
+	if (raster) {
+	    paintRaster(gr2, d, clip, snapshot);
+	    return;
+	}
+	final int imin = Math.max(0, (int) Math.floor(originX
+						      + clip.x / scale));
+	final int imax = Math.min(boardSize, (int) Math.ceil(originX
+					+ (clip.x + clip.width) / scale));
+	final int jmin = Math.max(0, (int) Math.floor(originY
+						      + clip.y / scale));
+	final int jmax = Math.min(boardSize, (int) Math.ceil(originY
+					+ (clip.y + clip.height) / scale));
+	gr2.setPaint(getBackground());
+	gr2.fill(clip);
 	gr2.setPaint(deadcolor);
-	gr2.fill(new Rectangle2D.Double(0.0d, 0.0d, d.width, d.height));
+	gr2.fill(new Rectangle2D.Double(
+			(imin - originX) * scale, (jmin - originY) * scale,
+			(imax - imin) * scale, (jmax - jmin) * scale));
 	gr2.setPaint(livecolor);
-	final double dww = d.width / ((double) boardSize);
-	final double dhh = d.height / ((double) boardSize);
-	final double ddw = cellSize * dww / (cellSize + dcellGap);
-	final double ddh = cellSize * dhh / (cellSize + dcellGap);
-	for (int i = 0; i < boardSize; i++) {
-	    for (int j = 0; j < boardSize; j++) {
-		if (labels[i][j]) {
-		    gr2.fill(new Rectangle2D.Double(
-					     dww * i, dhh * j, ddw, ddh));
+	final double dd = scale * cellFraction;
+	int painting = 1;
+	for (int i = imin; i < imax; i++) {
+	    for (int j = jmin; j < jmax; j++) {
+		final int state = states > 2 ? snapshot.getState(i, j)
+		    : snapshot.isAlive(i, j) ? 1 : 0;
+		if (state != 0) {
+		    if (state != painting) {
+			painting = state;
+			gr2.setPaint(rampColors[state]);
+		    }
+		    gr2.fill(new Rectangle2D.Double((i - originX) * scale,
+					(j - originY) * scale, dd, dd));
 		}
 	    }
 	}
     }
 
-    @Override
-    public void actionPerformed(final ActionEvent aev) {
-	step();
+    /*
+     * Make sure the image matches the size of the view.
+     */
+    private void updateImage(final Dimension d) {
+	if (image == null || image.getWidth() != d.width
+	    || image.getHeight() != d.height) {
+	    image = new BufferedImage(d.width, d.height,
+				      BufferedImage.TYPE_INT_RGB);
+	    pixels = ((DataBufferInt) image.getRaster().getDataBuffer())
+		.getData();
+	    columnFrom = new int[d.width];
+	    columnTo = new int[d.width];
+	}
+    }
+
+    /*
+     * The cell under the centre of a pixel, GAP if that's in the gap
+     * between cells, or OFF if it's off the board.
+     */
+    private int cellAt(final double origin, final int p) {
+	final double c = origin + (p + 0.5) / scale;
+	if (c < 0.0 || c >= boardSize) {
+	    return OFF;
+	}
+	final int cell = (int) c;
+	return c - cell < cellFraction ? cell : GAP;
+    }
+
+    /*
+     * Write the colour of the cell under each pixel in the clip into the
+     * image, and draw it. A line of pixels over the same row of cells as
+     * the line above is copied rather than worked out again, so the cells
+     * are only looked at once for each line of cells in view.
+     */
+    private void paintRaster(final Graphics2D gr2, final Dimension d,
+			     final Rectangle clip, final PctSnapshot snapshot) {
+	updateImage(d);
+	final int[] colors = ramp;
+	final int dead = colors[0];
+	final int off = getBackground().getRGB();
+	final boolean multi = colors.length > 2;
+	final int xmin = clip.x;
+	final int xmax = clip.x + clip.width;
+	for (int px = xmin; px < xmax; px++) {
+	    columnFrom[px] = cellAt(originX, px);
+	}
+	int last = OFF - 1;
+	for (int py = clip.y; py < clip.y + clip.height; py++) {
+	    final int line = py * d.width;
+	    final int j = cellAt(originY, py);
+	    if (j == last) {
+		System.arraycopy(pixels, line - d.width + xmin, pixels,
+				 line + xmin, xmax - xmin);
+	    } else if (j < 0) {
+		Arrays.fill(pixels, line + xmin, line + xmax,
+			    j == GAP ? dead : off);
+	    } else {
+		for (int px = xmin; px < xmax; px++) {
+		    final int i = columnFrom[px];
+		    pixels[line + px] = i >= 0
+			? colors[multi ? snapshot.getState(i, j)
+				 : snapshot.isAlive(i, j) ? 1 : 0]
+			: i == GAP ? dead : off;
+		}
+	    }
+	    last = j;
+	}
+	gr2.drawImage(image, 0, 0, null);
+    }
+
+    /*
+     * Zoomed out below a pixel per cell, shade each pixel in the clip by
+     * the density of live cells under it. With fewer than the size of the
+     * smallest tiles of the pyramid along each side of a pixel, the cells
+     * are counted; with more, the counts come from the level of the
+     * pyramid with the largest tiles no bigger than a pixel, so at most 9
+     * tiles are looked at for each pixel. The shade goes with the square
+     * root of the density, so that sparse areas still show up.
+     */
+    private void paintDensity(final Graphics2D gr2, final Dimension d,
+			      final Rectangle clip,
+			      final PctSnapshot snapshot) {
+	updateImage(d);
+	updateShades();
+	if (pyramid == null) {
+	    pyramid = new PctPyramid(boardSize);
+	    pyramid.fill(snapshot);
+	}
+	final double cpp = 1.0 / scale;
+	int level = -1;
+	while (level + 1 < pyramid.getLevels()
+	       && (PctPyramid.BASE_SIZE << (level + 1)) <= cpp) {
+	    level++;
+	}
+	final int off = getBackground().getRGB();
+	final int xmin = clip.x;
+	final int xmax = clip.x + clip.width;
+	for (int px = xmin; px < xmax; px++) {
+	    columnFrom[px] = firstCell(originX, px);
+	    columnTo[px] = firstCell(originX, px + 1);
+	}
+	for (int py = clip.y; py < clip.y + clip.height; py++) {
+	    final int line = py * d.width;
+	    final int j0 = firstCell(originY, py);
+	    final int j1 = firstCell(originY, py + 1);
+	    for (int px = xmin; px < xmax; px++) {
+		final int i0 = columnFrom[px];
+		final int i1 = columnTo[px];
+		if (i0 >= i1 || j0 >= j1) {
+		    pixels[line + px] = off;
+		} else {
+		    pixels[line + px] = shade(level < 0
+				? countCells(snapshot, i0, i1, j0, j1)
+				: countTiles(level, i0, i1, j0, j1));
+		}
+	    }
+	}
+	gr2.drawImage(image, 0, 0, null);
+    }
+
+    /*
+     * The first cell at or after the edge of a pixel, limited to the board.
+     */
+    private int firstCell(final double origin, final int p) {
+	final double c = Math.ceil(origin + p / scale);
+	return (int) Math.max(0.0, Math.min(boardSize, c));
+    }
+
+    /*
+     * The shade for the density of live cells, given as the number alive
+     * and the number looked at. Any live cells at all show up.
+     */
+    private int shade(final long counted) {
+	final int alive = (int) (counted >>> 32);
+	final int cells = (int) counted;
+	if (alive == 0) {
+	    return shades[0];
+	}
+	return shades[Math.max(1, (int) (Math.sqrt(alive / (double) cells)
+					 * (SHADES - 1)))];
+    }
+
+    /*
+     * The number of live cells in a range of cells, in the top half, and
+     * the number of cells, in the bottom half. The rows span at most two
+     * words.
+     */
+    private static long countCells(final PctSnapshot snapshot,
+				   final int i0, final int i1,
+				   final int j0, final int j1) {
+	final int w0 = j0 >>> 6;
+	final int w1 = (j1 - 1) >>> 6;
+	final long mask0 = w0 == w1 ? range(j0 & 63, ((j1 - 1) & 63) + 1)
+	    : range(j0 & 63, 64);
+	final long mask1 = w0 == w1 ? 0L : range(0, ((j1 - 1) & 63) + 1);
+	long alive = 0;
+	for (int i = i0; i < i1; i++) {
+	    alive += Long.bitCount(snapshot.getWord(i, w0) & mask0);
+	    if (mask1 != 0L) {
+		alive += Long.bitCount(snapshot.getWord(i, w1) & mask1);
+	    }
+	}
+	return (alive << 32) | ((long) (i1 - i0) * (j1 - j0));
+    }
+
+    /*
+     * The bits from lo up to but not including hi.
+     */
+    private static long range(final int lo, final int hi) {
+	final long upto = hi == 64 ? -1L : (1L << hi) - 1;
+	return upto & (-1L << lo);
+    }
+
+    /*
+     * The number of live cells in the tiles at the given level that the
+     * range of cells overlaps, in the top half, and the number of cells
+     * those tiles cover, in the bottom half.
+     */
+    private long countTiles(final int level, final int i0, final int i1,
+			    final int j0, final int j1) {
+	final int bits = PctPyramid.BASE_BITS + level;
+	final int tx0 = i0 >> bits;
+	final int tx1 = (i1 - 1) >> bits;
+	final int ty0 = j0 >> bits;
+	final int ty1 = (j1 - 1) >> bits;
+	long alive = 0;
+	for (int tx = tx0; tx <= tx1; tx++) {
+	    for (int ty = ty0; ty <= ty1; ty++) {
+		alive += pyramid.getCount(level, tx, ty);
+	    }
+	}
+	final long width = Math.min(boardSize, (tx1 + 1) << bits)
+	    - ((long) tx0 << bits);
+	final long height = Math.min(boardSize, (ty1 + 1) << bits)
+	    - ((long) ty0 << bits);
+	return (alive << 32) | (width * height);
+    }
+
+    /*
+     * Drag the board around with the mouse, and zoom in and out about the
+     * mouse with the wheel.
+     */
+    private final class ViewMouse extends MouseAdapter {
+
+	/** Where the mouse was last dragged from, if it's being dragged. */
+	private Point from;
+
+	@Override
+	public void mousePressed(final MouseEvent e) {
+	    from = e.getPoint();
+	}
+
+	@Override
+	public void mouseReleased(final MouseEvent e) {
+	    from = null;
+	}
+
+	@Override
+	public void mouseDragged(final MouseEvent e) {
+	    if (from != null) {
+		pan(from.x - e.getX(), from.y - e.getY());
+		from = e.getPoint();
+	    }
+	}
+
+	@Override
+	public void mouseWheelMoved(final MouseWheelEvent e) {
+	    zoomAt(Math.pow(ZOOM_STEP, -e.getPreciseWheelRotation()),
+		   e.getX(), e.getY());
+	}
     }
 }
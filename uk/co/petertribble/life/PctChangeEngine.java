@@ -0,0 +1,258 @@
+/*
+ * SPDX-License-Identifier: CDDL-1.0
+ *
+ * CDDL HEADER START
+ *
+ * This file and its contents are supplied under the terms of the
+ * Common Development and Distribution License ("CDDL"), version 1.0.
+ * You may only use this file in accordance with the terms of version
+ * 1.0 of the CDDL.
+ *
+ * A full copy of the text of the CDDL should have accompanied this
+ * source. A copy of the CDDL is also available via the Internet at
+ * http://www.illumos.org/license/CDDL.
+ *
+ * CDDL HEADER END
+ *
+ * Copyright 2026 Peter Tribble
+ *
+ */
+
+package uk.co.petertribble.life;
+
+import java.util.Arrays;
+
+/**
+ * A pctlife engine that only looks at cells that might change. It keeps
+ * the number of live neighbours of every cell, and a list of the cells
+ * whose state or neighbour count changed in the last step. Only those
+ * cells can change in the next step, as every other cell is just as it
+ * was when it last stayed the same. The cost of a step is proportional to
+ * the activity on the board, rather than its area, which suits boards that
+ * are mostly empty or settled.
+ *
+ * <p>The cells and counts are held in bytes, in flat arrays laid out as in
+ * the gen engine, with the invisible 1-cell border and a further strip of
+ * dead cells beyond it. Cells in that strip are never on the list, so they
+ * stay dead.
+ */
+public final class PctChangeEngine implements PctEngine {
+
+    /** The initial size of the lists of cells. */
+    private static final int INITIAL_LIST = 1024;
+
+    /** The size in cells of the board. */
+    private final int boardSize;
+    /** The distance between the start of successive rows in the arrays. */
+    private final int stride;
+    /** The offsets in the arrays of the eight neighbours of a cell. */
+    private final int[] neighbours;
+
+    /** The state of each cell, 1 if alive. */
+    private final byte[] cells;
+    /** The number of live neighbours of each cell. */
+    private final byte[] counts;
+    /**
+     * Whether each cell is on the list to look at in the next step. The
+     * cells beyond the border are always marked, so that they never are.
+     */
+    private final byte[] queued;
+
+    /** The cells to look at in the next step. */
+    private int[] candidates = new int[INITIAL_LIST];
+    /** The number of cells to look at in the next step. */
+    private int ncandidates;
+    /** The cells that change in this step. */
+    private int[] flips = new int[INITIAL_LIST];
+    /** The number of cells that change in this step. */
+    private int nflips;
+    /** The number of live cells, including any on the border. */
+    private long live;
+
+    /** The rule used to compute each generation. */
+    private PctRule rule = PctRule.CONWAY;
+
+    /**
+     * Construct a new PctChangeEngine of the given size.
+     *
+     * @param nboardSize the size of the board
+     */
+    public PctChangeEngine(final int nboardSize) {
+	boardSize = nboardSize;
+	stride = boardSize + 4;
+	neighbours = new int[] {-stride - 1, -stride, -stride + 1, -1, 1,
+				stride - 1, stride, stride + 1};
+	cells = new byte[stride * stride];
+	counts = new byte[stride * stride];
+	queued = new byte[stride * stride];
+	for (int x = 0; x < stride; x++) {
+	    for (int y = 0; y < stride; y++) {
+		if (x == 0 || y == 0 || x == stride - 1 || y == stride - 1) {
+		    queued[x * stride + y] = 1;
+		}
+	    }
+	}
+    }
+
+    @Override
+    public int getBoardSize() {
+	return boardSize;
+    }
+
+    /**
+     * Get the number of cells that will be looked at in the next step.
+     *
+     * @return the number of cells that might change
+     */
+    public int getActiveCount() {
+	return ncandidates;
+    }
+
+    /*
+     * The cells flipped in the last step are exactly the ones that
+     * changed, less any on the invisible border, each a run of its own.
+     */
+    @Override
+    public boolean visitChanges(final RunVisitor visitor) {
+	for (int k = 0; k < nflips; k++) {
+	    final int x = flips[k] / stride - 2;
+	    final int y = flips[k] % stride - 2;
+	    if (x >= 0 && x < boardSize && y >= 0 && y < boardSize) {
+		visitor.visit(x, y, 1);
+	    }
+	}
+	return true;
+    }
+
+    @Override
+    public String getActivity() {
+	return getActiveCount() + " of " + (long) boardSize * boardSize
+	    + " cells to look at in the next step";
+    }
+
+    @Override
+    public void clear() {
+	Arrays.fill(cells, (byte) 0);
+	Arrays.fill(counts, (byte) 0);
+	for (int k = 0; k < ncandidates; k++) {
+	    queued[candidates[k]] = 0;
+	}
+	ncandidates = 0;
+	nflips = 0;
+	live = 0L;
+    }
+
+    @Override
+    public void setAlive(final int x, final int y) {
+	if (x >= 0 && x < boardSize && y >= 0 && y < boardSize) {
+	    final int i = (x + 2) * stride + y + 2;
+	    if (cells[i] == 0) {
+		flip(i);
+	    }
+	}
+    }
+
+    @Override
+    public boolean isAlive(final int x, final int y) {
+	return cells[(x + 2) * stride + y + 2] != 0;
+    }
+
+    /**
+     * Count the live cells on the board, which are kept count of as they
+     * change, less any on the border.
+     *
+     * @return the number of live cells
+     */
+    @Override
+    public long getPopulation() {
+	long border = 0L;
+	for (int j = 1; j < boardSize + 3; j++) {
+	    border += cells[stride + j] + cells[(boardSize + 2) * stride + j];
+	}
+	for (int j = 2; j < boardSize + 2; j++) {
+	    border += cells[j * stride + 1] + cells[j * stride + boardSize + 2];
+	}
+	return live - border;
+    }
+
+    @Override
+    public PctRule getRule() {
+	return rule;
+    }
+
+    /**
+     * Set the rule. Cells that were settled under the old rule might not
+     * be under the new one, so every live cell and its neighbours are
+     * looked at in the next step.
+     *
+     * @param nrule the new rule
+     */
+    @Override
+    public void setRule(final PctRule nrule) {
+	rule = nrule.require(1, 2);
+	for (int i = 0; i < cells.length; i++) {
+	    if (cells[i] != 0) {
+		queueAround(i);
+	    }
+	}
+    }
+
+    /**
+     * Run one step of the game.
+     *
+     * <p>First the rule is applied to each cell on the list, noting the
+     * ones that change, without changing anything. Then those cells are
+     * flipped, the counts of their neighbours adjusted, and they and their
+     * neighbours make up the list for the next step.
+     */
+    @Override
+    public void step() {
+	final PctRule r = rule;
+	nflips = 0;
+	for (int k = 0; k < ncandidates; k++) {
+	    final int i = candidates[k];
+	    queued[i] = 0;
+	    if (r.next(cells[i], counts[i]) != cells[i]) {
+		if (nflips == flips.length) {
+		    flips = Arrays.copyOf(flips, 2 * nflips);
+		}
+		flips[nflips++] = i;
+	    }
+	}
+	ncandidates = 0;
+	for (int k = 0; k < nflips; k++) {
+	    flip(flips[k]);
+	}
+    }
+
+    /*
+     * Flip the state of a cell, adjust the counts of its neighbours, and
+     * put it and them on the list for the next step.
+     */
+    private void flip(final int i) {
+	cells[i] ^= 1;
+	final int delta = cells[i] == 0 ? -1 : 1;
+	live += delta;
+	for (final int n : neighbours) {
+	    counts[i + n] += delta;
+	}
+	queueAround(i);
+    }
+
+    private void queueAround(final int i) {
+	queue(i);
+	for (final int n : neighbours) {
+	    queue(i + n);
+	}
+    }
+
+    private void queue(final int i) {
+	if (queued[i] == 0) {
+	    queued[i] = 1;
+	    if (ncandidates == candidates.length) {
+		candidates = Arrays.copyOf(candidates, 2 * ncandidates);
+	    }
+	    candidates[ncandidates++] = i;
+	}
+    }
+}
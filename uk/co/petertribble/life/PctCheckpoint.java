@@ -0,0 +1,271 @@
+/*
+ * SPDX-License-Identifier: CDDL-1.0
+ *
+ * CDDL HEADER START
+ *
+ * This file and its contents are supplied under the terms of the
+ * Common Development and Distribution License ("CDDL"), version 1.0.
+ * You may only use this file in accordance with the terms of version
+ * 1.0 of the CDDL.
+ *
+ * A full copy of the text of the CDDL should have accompanied this
+ * source. A copy of the CDDL is also available via the Internet at
+ * http://www.illumos.org/license/CDDL.
+ *
+ * CDDL HEADER END
+ *
+ * Copyright 2026 Peter Tribble
+ *
+ */
+
+package uk.co.petertribble.life;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Save and restore the state of a board in a compact binary checkpoint
+ * file, so that a long run can be resumed.
+ *
+ * <p>A checkpoint holds a header giving the generation, the rule, and the
+ * dimensions of the board, followed by the cells packed 64 to a long in
+ * the same layout as a PctSnapshot. If most words are empty, only the
+ * words with live cells are stored, each preceded by its index. Under
+ * Generations rules, the cells are followed by the state of every cell, a
+ * byte each, row by row. All values are big-endian.
+ *
+ * <p>Only the visible board is saved. The invisible border of a bounded
+ * engine, and cells outside the window of an unbounded engine, aren't.
+ */
+public final class PctCheckpoint {
+
+    /**
+     * The first four bytes of a checkpoint file, "PCTL".
+     */
+    private static final int MAGIC = 0x5043544c;
+    /**
+     * The version of the file format.
+     */
+    private static final int VERSION = 1;
+    /**
+     * Marks a file holding every word of the board.
+     */
+    private static final byte PACKED = 0;
+    /**
+     * Marks a file holding only the words with live cells.
+     */
+    private static final byte SPARSE = 1;
+    /**
+     * The most words a board can have, as they're held in a single array.
+     */
+    private static final long MAX_WORDS = Integer.MAX_VALUE - 8;
+
+    private PctCheckpoint() {
+    }
+
+    /**
+     * Report whether a file is a checkpoint, rather than a pattern.
+     *
+     * @param infile the file to check
+     *
+     * @return true if the file starts like a checkpoint
+     */
+    public static boolean isCheckpoint(final File infile) {
+	try (FileChannel channel = FileChannel.open(infile.toPath(),
+					StandardOpenOption.READ)) {
+	    final ByteBuffer buf = ByteBuffer.allocate(4);
+	    while (buf.hasRemaining() && channel.read(buf) >= 0) {
+		continue;
+	    }
+	    return !buf.hasRemaining() && buf.getInt(0) == MAGIC;
+	} catch (IOException ioe) {
+	    return false;
+	}
+    }
+
+    /**
+     * Save a snapshot of the board as a checkpoint. The checkpoint is
+     * written to a temporary file which then replaces the given file, so
+     * an earlier checkpoint survives if saving fails part way through.
+     *
+     * @param snapshot the snapshot to save
+     * @param outfile the file to write
+     *
+     * @throws IOException if the file cannot be written
+     */
+    public static void save(final PctSnapshot snapshot, final File outfile)
+	    throws IOException {
+	final int boardSize = snapshot.getBoardSize();
+	final int words = snapshot.getWords();
+	int used = 0;
+	for (int i = 0; i < boardSize; i++) {
+	    for (int w = 0; w < words; w++) {
+		if (snapshot.getWord(i, w) != 0L) {
+		    used++;
+		}
+	    }
+	}
+	final long total = (long) boardSize * words;
+	final boolean sparse = 12L * used < 8L * total;
+	final byte[] rule = snapshot.getRule().toString()
+	    .getBytes(StandardCharsets.US_ASCII);
+	final boolean multi = snapshot.getRule().getStates() > 2;
+	final long size = 35L + rule.length
+	    + (sparse ? 4L + 12L * used : 8L * total)
+	    + (multi ? (long) boardSize * boardSize : 0L);
+	if (size > Integer.MAX_VALUE) {
+	    throw new IOException("Board too large to save");
+	}
+
+	final ByteBuffer buf = ByteBuffer.allocate((int) size);
+	buf.putInt(MAGIC);
+	buf.putInt(VERSION);
+	buf.putLong(snapshot.getGeneration());
+	buf.putShort((short) rule.length);
+	buf.put(rule);
+	buf.putInt(boardSize);
+	buf.putInt(boardSize);
+	buf.put(sparse ? SPARSE : PACKED);
+	buf.putLong(total);
+	if (sparse) {
+	    buf.putInt(used);
+	}
+	for (int i = 0; i < boardSize; i++) {
+	    for (int w = 0; w < words; w++) {
+		final long word = snapshot.getWord(i, w);
+		if (!sparse) {
+		    buf.putLong(word);
+		} else if (word != 0L) {
+		    buf.putInt(i * words + w);
+		    buf.putLong(word);
+		}
+	    }
+	}
+	if (multi) {
+	    for (int i = 0; i < boardSize; i++) {
+		for (int j = 0; j < boardSize; j++) {
+		    buf.put((byte) snapshot.getState(i, j));
+		}
+	    }
+	}
+	buf.flip();
+
+	final Path target = outfile.toPath();
+	final Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+	try (FileChannel channel = FileChannel.open(tmp,
+					StandardOpenOption.CREATE,
+					StandardOpenOption.WRITE,
+					StandardOpenOption.TRUNCATE_EXISTING)) {
+	    while (buf.hasRemaining()) {
+		channel.write(buf);
+	    }
+	    channel.force(false);
+	}
+	try {
+	    Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING,
+		       StandardCopyOption.ATOMIC_MOVE);
+	} catch (AtomicMoveNotSupportedException amnse) {
+	    Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+	}
+    }
+
+    /**
+     * Read a checkpoint into a snapshot.
+     *
+     * @param infile the file to read
+     *
+     * @return a snapshot of the saved board
+     *
+     * @throws IOException if the file cannot be read, isn't a checkpoint,
+     * or was saved under an unsupported rule
+     */
+    public static PctSnapshot load(final File infile) throws IOException {
+	try (FileChannel channel = FileChannel.open(infile.toPath(),
+					StandardOpenOption.READ)) {
+	    final ByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY,
+					0L, channel.size());
+	    if (buf.remaining() < 8 || buf.getInt() != MAGIC) {
+		throw new IOException("Not a checkpoint");
+	    }
+	    if (buf.getInt() != VERSION) {
+		throw new IOException("Unsupported checkpoint version");
+	    }
+	    final long generation = buf.getLong();
+	    final byte[] rulestring = new byte[buf.getShort() & 0xffff];
+	    buf.get(rulestring);
+	    final PctRule rule;
+	    try {
+		rule = PctRule.parse(new String(rulestring,
+					StandardCharsets.US_ASCII));
+	    } catch (IllegalArgumentException iae) {
+		throw new IOException("Unsupported rule", iae);
+	    }
+	    final int boardSize = buf.getInt();
+	    if (boardSize < 0 || buf.getInt() != boardSize) {
+		throw new IOException("Invalid board dimensions");
+	    }
+	    final byte encoding = buf.get();
+	    final long total = buf.getLong();
+	    if (total != boardSize * ((boardSize + 63L) / 64)
+		    || encoding == PACKED && total > buf.remaining() / 8
+		    || rule.getStates() > 2
+			&& (long) boardSize * boardSize > buf.remaining()) {
+		throw new IOException("Invalid board dimensions");
+	    }
+	    // a sparse file can describe any size of board in a few bytes
+	    if (total > MAX_WORDS
+		    || total > Runtime.getRuntime().maxMemory() / 8) {
+		throw new IOException("Board too large to load");
+	    }
+	    final PctSnapshot snapshot = new PctSnapshot(boardSize);
+	    final int words = snapshot.getWords();
+	    snapshot.setGeneration(generation);
+	    snapshot.setRule(rule);
+	    if (encoding == SPARSE) {
+		final int used = buf.getInt();
+		if (used < 0 || used > buf.remaining() / 12) {
+		    throw new IOException("Invalid word count");
+		}
+		for (int n = 0; n < used; n++) {
+		    final int index = buf.getInt();
+		    if (index < 0 || index >= total) {
+			throw new IOException("Invalid cell index");
+		    }
+		    snapshot.setWord(index / words, index % words,
+				     buf.getLong());
+		}
+	    } else if (encoding == PACKED) {
+		for (int i = 0; i < boardSize; i++) {
+		    for (int w = 0; w < words; w++) {
+			snapshot.setWord(i, w, buf.getLong());
+		    }
+		}
+	    } else {
+		throw new IOException("Unknown cell encoding");
+	    }
+	    if (rule.getStates() > 2) {
+		for (int i = 0; i < boardSize; i++) {
+		    for (int j = 0; j < boardSize; j++) {
+			final int state = buf.get() & 0xff;
+			if (state >= rule.getStates()) {
+			    throw new IOException("Invalid cell state");
+			}
+			snapshot.setState(i, j, state);
+		    }
+		}
+	    }
+	    return snapshot;
+	} catch (BufferUnderflowException bue) {
+	    throw new IOException("Truncated checkpoint", bue);
+	}
+    }
+}
@@ -0,0 +1,362 @@
+/*
+ * SPDX-License-Identifier: CDDL-1.0
+ *
+ * CDDL HEADER START
+ *
+ * This file and its contents are supplied under the terms of the
+ * Common Development and Distribution License ("CDDL"), version 1.0.
+ * You may only use this file in accordance with the terms of version
+ * 1.0 of the CDDL.
+ *
+ * A full copy of the text of the CDDL should have accompanied this
+ * source. A copy of the CDDL is also available via the Internet at
+ * http://www.illumos.org/license/CDDL.
+ *
+ * CDDL HEADER END
+ *
+ * Copyright 2026 Peter Tribble
+ *
+ */
+
+package uk.co.petertribble.life;
+
+/**
+ * Detect when a board has settled into still lifes and oscillators, by
+ * noticing that it has returned to a state it was in a few generations
+ * earlier.
+ *
+ * <p>The board is hashed Zobrist-style: each state of each cell has a
+ * pseudo-random key, and the hash is the XOR of the keys of every cell
+ * that isn't dead. The detector keeps its own copy of the board, and each
+ * step only the cells that changed have their keys XORed out and in again.
+ * Engines that keep track of the cells that changed in the last step, such
+ * as the tile and change engines, say which cells to look at, so a step
+ * costs no more than the changes. Otherwise the board is copied from the
+ * engine and compared a word of 64 cells at a time with the previous one.
+ * The hashes of the last HISTORY steps are kept, so any period up to
+ * HISTORY steps is found the first time the board repeats.
+ *
+ * <p>An engine that advances several generations in each step, such as the
+ * hash engine with a step size, is only seen every few generations, so all
+ * that's known is that the board repeats over the number of generations
+ * found, and that its period divides that number.
+ *
+ * <p>Only the visible board is compared, so on an unbounded engine
+ * anything that has left the board, such as a glider, is ignored.
+ */
+public final class PctCycleDetector {
+
+    /**
+     * The number of steps of hashes kept, and so the longest period, in
+     * steps, that can be detected.
+     */
+    public static final int HISTORY = 256;
+
+    /** Just report a cycle when it's found. */
+    public static final String REPORT = "report";
+    /** Pause the game when a cycle is found. */
+    public static final String PAUSE = "pause";
+    /** Start again with a new random soup when a cycle is found. */
+    public static final String RESTART = "restart";
+
+    /** The board as it was when last updated. */
+    private PctSnapshot current;
+    /**
+     * The board as it was in the update before that, only used if the
+     * engine doesn't keep track of changes, and allocated when needed.
+     */
+    private PctSnapshot previous;
+    /** The hash of the current board. */
+    private long hash;
+    /** Whether current holds a board, so hash can be updated. */
+    private boolean primed;
+    /**
+     * Whether the board has only been changed by steps since the last
+     * update, so the engine can say which cells need looking at.
+     */
+    private boolean tracked;
+
+    /** The hashes of recent generations, as a ring. */
+    private final long[] hashes = new long[HISTORY];
+    /** The generation of each hash in the ring. */
+    private final long[] generations = new long[HISTORY];
+    /** The number of hashes in the ring. */
+    private int count;
+    /** The position in the ring of the next hash. */
+    private int head;
+
+    /** The first generation of the cycle found, or -1 if none yet. */
+    private long stableGeneration = -1L;
+    /** The period of the cycle found. */
+    private long period;
+    /**
+     * Whether the period found is exact, rather than a multiple of the
+     * period because the engine steps more than one generation at a time.
+     */
+    private boolean exact;
+
+    /**
+     * Create a cycle detector for a board of the given size.
+     *
+     * @param boardSize the size of the board
+     */
+    public PctCycleDetector(final int boardSize) {
+	current = new PctSnapshot(boardSize);
+    }
+
+    /**
+     * Forget the history, when the board has been replaced.
+     */
+    public void reset() {
+	primed = false;
+	count = 0;
+	head = 0;
+	stableGeneration = -1L;
+	period = 0L;
+	exact = false;
+    }
+
+    /**
+     * Note that the board may have been changed other than by a step, so
+     * that the next update has to look at the whole board.
+     */
+    public void boardChanged() {
+	tracked = false;
+    }
+
+    /**
+     * Hash the board at a new step, and look for it among the recent
+     * steps. Once a cycle has been found, nothing more is
+     * done until the detector is reset.
+     *
+     * @param engine the engine holding the board
+     * @param generation the current generation
+     *
+     * @return true if the board has just been found to repeat
+     */
+    public boolean update(final PctEngine engine, final long generation) {
+	if (isStable()) {
+	    return false;
+	}
+	if (primed && tracked && current.getRule().equals(engine.getRule())
+		&& engine.visitChanges((x, y, length)
+				       -> updateRun(engine, x, y, length))) {
+	    current.setGeneration(generation);
+	} else {
+	    if (previous == null) {
+		previous = new PctSnapshot(current.getBoardSize());
+	    }
+	    final PctSnapshot t = previous;
+	    previous = current;
+	    current = t;
+	    current.copyFrom(engine, generation);
+	    if (primed && current.getRule().equals(previous.getRule())) {
+		updateHash();
+	    } else {
+		hash = fullHash();
+		primed = true;
+	    }
+	    tracked = true;
+	}
+	for (int i = 0; i < count; i++) {
+	    if (hashes[i] == hash) {
+		stableGeneration = generations[i];
+		period = generation - stableGeneration;
+		exact = engine.getGenerationsPerStep() == 1L;
+		return true;
+	    }
+	}
+	hashes[head] = hash;
+	generations[head] = generation;
+	head = (head + 1) % HISTORY;
+	count = Math.min(count + 1, HISTORY);
+	return false;
+    }
+
+    private long fullHash() {
+	final int boardSize = current.getBoardSize();
+	long h = 0L;
+	for (int i = 0; i < boardSize; i++) {
+	    for (int j = 0; j < boardSize; j++) {
+		h ^= key(i * boardSize + j, current.getState(i, j));
+	    }
+	}
+	return h;
+    }
+
+    private void updateHash() {
+	final int boardSize = current.getBoardSize();
+	final int words = current.getWords();
+	for (int i = 0; i < boardSize; i++) {
+	    for (int w = 0; w < words; w++) {
+		long changed = current.getChanges(previous, i, w);
+		while (changed != 0L) {
+		    final int j = w * 64 + Long.numberOfTrailingZeros(changed);
+		    final int cell = i * boardSize + j;
+		    hash ^= key(cell, previous.getState(i, j))
+			^ key(cell, current.getState(i, j));
+		    changed &= changed - 1;
+		}
+	    }
+	}
+    }
+
+    /*
+     * Bring a run of cells the engine says may have changed up to date.
+     * Cells with dying states are looked at one by one; otherwise the
+     * cells are gathered into words and compared a word at a time.
+     */
+    private void updateRun(final PctEngine engine, final int x,
+			   final int y, final int length) {
+	if (current.getRule().getStates() > 2) {
+	    for (int j = y; j < y + length; j++) {
+		updateCell(engine, x, j);
+	    }
+	    return;
+	}
+	final int base = x * current.getBoardSize();
+	for (int w = y >>> 6; w <= (y + length - 1) >>> 6; w++) {
+	    final int from = Math.max(y - w * 64, 0);
+	    final int to = Math.min(y + length - w * 64, 64);
+	    long after = 0L;
+	    for (int j = from; j < to; j++) {
+		if (engine.isAlive(x, w * 64 + j)) {
+		    after |= 1L << j;
+		}
+	    }
+	    final long before = current.getWord(x, w);
+	    final long mask = (-1L >>> (64 - to + from)) << from;
+	    long changed = (before ^ after) & mask;
+	    if (changed != 0L) {
+		current.setWord(x, w, before ^ changed);
+		while (changed != 0L) {
+		    final int j = w * 64
+			+ Long.numberOfTrailingZeros(changed);
+		    hash ^= key(base + j, 1);
+		    changed &= changed - 1;
+		}
+	    }
+	}
+    }
+
+    /*
+     * Bring a cell the engine says may have changed up to date.
+     */
+    private void updateCell(final PctEngine engine, final int x,
+			    final int y) {
+	final int before = current.getState(x, y);
+	final int after = engine.getState(x, y);
+	if (before != after) {
+	    final int cell = x * current.getBoardSize() + y;
+	    hash ^= key(cell, before) ^ key(cell, after);
+	    current.replaceState(x, y, after);
+	}
+    }
+
+    /*
+     * The key of a cell in a given state, 0 for a dead cell. Rather than a
+     * table as large as the board, the keys are generated by mixing the
+     * cell and state with the SplitMix64 finalizer.
+     */
+    private static long key(final int cell, final int state) {
+	if (state == 0) {
+	    return 0L;
+	}
+	long z = (((long) cell << 8) | state) * 0x9e3779b97f4a7c15L;
+	z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+	z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+	return z ^ (z >>> 31);
+    }
+
+    /**
+     * Report whether no generations have been hashed since the detector
+     * was created or reset, so that the board should be hashed before it
+     * is stepped.
+     *
+     * @return true if there's no history
+     */
+    public boolean isEmpty() {
+	return count == 0 && !isStable();
+    }
+
+    /**
+     * Get the detector's copy of the board, if it's up to date, so that it
+     * needn't be read from the engine again.
+     *
+     * @param generation the current generation
+     * @param rule the current rule
+     *
+     * @return the board at the last update, or null if that wasn't at the
+     * given generation and rule
+     */
+    PctSnapshot getBoard(final long generation, final PctRule rule) {
+	return primed && current.getGeneration() == generation
+	    && current.getRule().equals(rule) ? current : null;
+    }
+
+    /**
+     * Get the hash of the board at the last update.
+     *
+     * @return the hash
+     */
+    public long getHash() {
+	return hash;
+    }
+
+    /**
+     * Report whether a cycle has been found.
+     *
+     * @return true if the board has settled into a cycle
+     */
+    public boolean isStable() {
+	return stableGeneration >= 0L;
+    }
+
+    /**
+     * Get the first generation of the cycle found.
+     *
+     * @return the generation the board stabilised at, or -1 if it hasn't
+     */
+    public long getStableGeneration() {
+	return stableGeneration;
+    }
+
+    /**
+     * Get the period of the cycle found, 1 if the board is still. If the
+     * period isn't exact, this is the number of generations the board was
+     * found to repeat over, which the true period divides.
+     *
+     * @return the period, or 0 if the board hasn't stabilised
+     */
+    public long getPeriod() {
+	return period;
+    }
+
+    /**
+     * Report whether the period found is exact, which it is unless the
+     * engine steps more than one generation at a time.
+     *
+     * @return true if the period is exact
+     */
+    public boolean isPeriodExact() {
+	return exact;
+    }
+
+    /**
+     * Describe the cycle found.
+     *
+     * @return a description of the cycle, or null if there isn't one
+     */
+    public String getReport() {
+	if (!isStable()) {
+	    return null;
+	}
+	if (exact) {
+	    return "stabilised at generation " + stableGeneration
+		+ " with period " + period;
+	}
+	return "stabilised by generation " + stableGeneration
+	    + ", repeating every " + period
+	    + " generations (the period divides " + period + ")";
+    }
+}
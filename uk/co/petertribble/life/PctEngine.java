@@ -0,0 +1,260 @@
+/*
+ * SPDX-License-Identifier: CDDL-1.0
+ *
+ * CDDL HEADER START
+ *
+ * This file and its contents are supplied under the terms of the
+ * Common Development and Distribution License ("CDDL"), version 1.0.
+ * You may only use this file in accordance with the terms of version
+ * 1.0 of the CDDL.
+ *
+ * A full copy of the text of the CDDL should have accompanied this
+ * source. A copy of the CDDL is also available via the Internet at
+ * http://www.illumos.org/license/CDDL.
+ *
+ * CDDL HEADER END
+ *
+ * Copyright 2026 Peter Tribble
+ *
+ */
+
+package uk.co.petertribble.life;
+
+/**
+ * The interface implemented by the engines that hold the cells of a
+ * pctlife board and compute successive generations.
+ *
+ * <p>Cells are addressed by their x and y coordinates, each running from 0
+ * to one less than the board size. Bounded engines maintain an invisible
+ * 1-cell strip around the visible board, so that the results of a step are
+ * the same whichever bounded engine is used; the ltl engine, whose
+ * neighbourhoods reach further, treats every cell off the board as dead.
+ * Engines with an unbounded universe show the board as a window onto it.
+ *
+ * <p>Some bounded engines can instead wrap the board round into a torus,
+ * so that cells on each edge neighbour those on the opposite edge. They
+ * do so by refreshing the invisible strip as a halo, copied from the
+ * opposite edges before each step, so that the inner loops are the same
+ * as for a bounded board.
+ */
+public interface PctEngine {
+
+    /**
+     * Something to be done to each of a set of runs of cells.
+     */
+    @FunctionalInterface
+    interface RunVisitor {
+	/**
+	 * Visit a run of cells, running along the y axis.
+	 *
+	 * @param x the x coordinate of the cells
+	 * @param y the y coordinate of the first cell
+	 * @param length the number of cells in the run
+	 */
+	void visit(int x, int y, int length);
+    }
+
+    /**
+     * Get the size in cells of the visible board.
+     *
+     * @return the size of the board
+     */
+    int getBoardSize();
+
+    /**
+     * Kill every cell on the board, including any invisible border.
+     */
+    void clear();
+
+    /**
+     * Make the given cell alive. Bounded engines ignore cells outside the
+     * board; engines with an unbounded universe accept any coordinates.
+     *
+     * @param x the x coordinate of the cell
+     * @param y the y coordinate of the cell
+     */
+    void setAlive(int x, int y);
+
+    /**
+     * Report whether the given cell is currently alive.
+     *
+     * @param x the x coordinate of the cell
+     * @param y the y coordinate of the cell
+     *
+     * @return true if the cell is alive
+     */
+    boolean isAlive(int x, int y);
+
+    /**
+     * Get the state of the given cell, for rules with dying states.
+     *
+     * @param x the x coordinate of the cell
+     * @param y the y coordinate of the cell
+     *
+     * @return 0 if the cell is dead, 1 if alive, or the dying state
+     */
+    default int getState(final int x, final int y) {
+	return isAlive(x, y) ? 1 : 0;
+    }
+
+    /**
+     * Set the state of the given cell, which must currently be dead.
+     * Engines that only run rules with 2 states ignore the dying states.
+     *
+     * @param x the x coordinate of the cell
+     * @param y the y coordinate of the cell
+     * @param state 1 to make the cell alive, or the dying state
+     */
+    default void setState(final int x, final int y, final int state) {
+	if (state == 1) {
+	    setAlive(x, y);
+	}
+    }
+
+    /**
+     * Make a run of cells alive, starting at the given cell and running
+     * along the x axis, as found in a row of a pattern file. Engines may
+     * override this to fill the run faster than one cell at a time.
+     *
+     * @param x the x coordinate of the first cell
+     * @param y the y coordinate of the cells
+     * @param length the number of cells in the run
+     */
+    default void setAliveRun(final int x, final int y, final int length) {
+	for (int i = 0; i < length; i++) {
+	    setAlive(x + i, y);
+	}
+    }
+
+    /**
+     * Copy the live cells of a row of the visible board, running along the
+     * y axis, into packed words, with bit j of word w holding the cell at
+     * y = 64 * w + j, and the bits beyond the edge of the board clear.
+     * Engines that pack their cells may override this to copy a word at a
+     * time rather than asking about each cell.
+     *
+     * @param x the x coordinate of the row
+     * @param row the array to copy the words into
+     * @param offset the index in the array of the first word
+     */
+    default void copyRow(final int x, final long[] row, final int offset) {
+	final int boardSize = getBoardSize();
+	for (int w = 0; w * 64 < boardSize; w++) {
+	    final int jmax = Math.min(64, boardSize - w * 64);
+	    long word = 0L;
+	    for (int j = 0; j < jmax; j++) {
+		if (isAlive(x, w * 64 + j)) {
+		    word |= 1L << j;
+		}
+	    }
+	    row[offset + w] = word;
+	}
+    }
+
+    /**
+     * Advance the board by one generation.
+     */
+    void step();
+
+    /**
+     * Get the rule used to compute each generation.
+     *
+     * @return the rule
+     */
+    PctRule getRule();
+
+    /**
+     * Set the rule used to compute each generation. The board is left as
+     * it is.
+     *
+     * @param rule the new rule
+     *
+     * @throws IllegalArgumentException if the engine can't run the rule, as
+     * only the ltl engine runs Larger than Life rules, and only the gen
+     * engine runs Generations rules
+     */
+    void setRule(PctRule rule);
+
+    /**
+     * Report whether the edges of the board wrap round.
+     *
+     * @return true if the board is a torus
+     */
+    default boolean isWrapped() {
+	return false;
+    }
+
+    /**
+     * Choose whether the edges of the board wrap round, making the board a
+     * torus. Turning wrapping off leaves the board as it is, with dead
+     * cells beyond the edges.
+     *
+     * @param wrapped true to wrap the edges round
+     *
+     * @throws UnsupportedOperationException if the engine can't wrap
+     */
+    default void setWrapped(final boolean wrapped) {
+	if (wrapped) {
+	    throw new UnsupportedOperationException("Engine can't wrap");
+	}
+    }
+
+    /**
+     * Get the number of generations each step advances the board by.
+     *
+     * @return the number of generations in a step
+     */
+    default long getGenerationsPerStep() {
+	return 1L;
+    }
+
+    /**
+     * Count the live cells. Bounded engines count the visible board;
+     * engines with an unbounded universe count the whole universe.
+     *
+     * @return the number of live cells
+     */
+    default long getPopulation() {
+	final int boardSize = getBoardSize();
+	long population = 0L;
+	for (int i = 0; i < boardSize; i++) {
+	    for (int j = 0; j < boardSize; j++) {
+		if (isAlive(i, j)) {
+		    population++;
+		}
+	    }
+	}
+	return population;
+    }
+
+    /**
+     * Visit every cell of the visible board that may have changed in the
+     * last step, in runs along the y axis, for engines that keep track, so
+     * that a copy of the board can be brought up to date without looking
+     * at the rest of it. Cells that didn't change may be visited as well,
+     * but none that did are missed. Only the last step is covered, so any
+     * other change to the board has to be picked up by copying the whole
+     * board.
+     *
+     * @param visitor the visitor to call for each run of cells
+     *
+     * @return false if the engine doesn't keep track of changes, or so
+     * much has changed that it would be quicker to copy the whole board,
+     * in which case no cells are visited
+     */
+    default boolean visitChanges(final RunVisitor visitor) {
+	return false;
+    }
+
+    /**
+     * Describe how much of the board the engine is working on, such as the
+     * number of tiles computed in the last step, so that the benefit of
+     * skipping quiet parts of the board can be seen.
+     *
+     * @return a description of the engine's activity, or null if it
+     * doesn't track any
+     */
+    default String getActivity() {
+	return null;
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ * SPDX-License-Identifier: CDDL-1.0
+ *
+ * CDDL HEADER START
+ *
+ * This file and its contents are supplied under the terms of the
+ * Common Development and Distribution License ("CDDL"), version 1.0.
+ * You may only use this file in accordance with the terms of version
+ * 1.0 of the CDDL.
+ *
+ * A full copy of the text of the CDDL should have accompanied this
+ * source. A copy of the CDDL is also available via the Internet at
+ * http://www.illumos.org/license/CDDL.
+ *
+ * CDDL HEADER END
+ *
+ * Copyright 2026 Peter Tribble
+ *
+ */
+
+package uk.co.petertribble.life;
+
+import java.util.Arrays;
+
+/**
+ * A pctlife engine for Generations rules, where a live cell that doesn't
+ * survive passes through dying states before it's dead, as in Brian's
+ * Brain (B2/S/C3) and Star Wars (B2/S345/C4). It runs Life-like rules too.
+ *
+ * <p>Each cell is held as its state in a byte, in a flat array, with the
+ * invisible 1-cell border, and a further strip of dead cells beyond it so
+ * that cells on the border can be counted without special cases. A step
+ * runs along each row in turn, so memory is read in order, and only ever
+ * touches the rows either side of the row being computed.
+ */
+public final class PctGenEngine implements PctEngine {
+
+    /** The size in cells of the board. */
+    private final int boardSize;
+    /** The distance between the start of successive rows in the arrays. */
+    private final int stride;
+
+    /** The current generation. */
+    private byte[] cells;
+    /** The next generation. */
+    private byte[] next;
+
+    /** The rule used to compute each generation. */
+    private PctRule rule = PctRule.CONWAY;
+    /** Whether the edges wrap round, with the border as a halo. */
+    private boolean wrapped;
+
+    /** The bands to split the work of each step into. */
+    private final PctBands bands;
+    /** Compute a band of rows. */
+    private final PctBands.Band rowBand = this::stepRows;
+
+    /**
+     * Construct a new PctGenEngine of the given size.
+     *
+     * @param nboardSize the size of the board
+     */
+    public PctGenEngine(final int nboardSize) {
+	this(nboardSize, new PctBands(1));
+    }
+
+    /**
+     * Construct a new PctGenEngine of the given size, splitting the work of
+     * each step into bands of rows.
+     *
+     * @param nboardSize the size of the board
+     * @param nbands the bands to split each step into
+     */
+    public PctGenEngine(final int nboardSize, final PctBands nbands) {
+	boardSize = nboardSize;
+	bands = nbands;
+	stride = boardSize + 4;
+	cells = new byte[stride * stride];
+	next = new byte[stride * stride];
+    }
+
+    @Override
+    public int getBoardSize() {
+	return boardSize;
+    }
+
+    @Override
+    public void clear() {
+	Arrays.fill(cells, (byte) 0);
+    }
+
+    @Override
+    public void setAlive(final int x, final int y) {
+	setState(x, y, 1);
+    }
+
+    @Override
+    public void setState(final int x, final int y, final int state) {
+	if (x >= 0 && x < boardSize && y >= 0 && y < boardSize) {
+	    cells[(x + 2) * stride + y + 2] = (byte) state;
+	}
+    }
+
+    @Override
+    public boolean isAlive(final int x, final int y) {
+	return cells[(x + 2) * stride + y + 2] == 1;
+    }
+
+    @Override
+    public int getState(final int x, final int y) {
+	return cells[(x + 2) * stride + y + 2] & 0xff;
+    }
+
+    @Override
+    public PctRule getRule() {
+	return rule;
+    }
+
+    @Override
+    public void setRule(final PctRule nrule) {
+	rule = nrule.require(1, PctRule.MAX_STATES);
+    }
+
+    /**
+     * Run one step of the game.
+     *
+     * <p>The rows, including the border, are split into bands. Dying
+     * cells don't count as neighbours, so each neighbour is tested for
+     * being alive rather than added up. If the board wraps round, the
+     * border is refreshed from the opposite edges first, and only the rows
+     * of the board itself are computed.
+     */
+    @Override
+    public void step() {
+	if (wrapped) {
+	    refreshHalo();
+	    bands.run(2, boardSize + 2, rowBand);
+	} else {
+	    bands.run(1, boardSize + 3, rowBand);
+	}
+	final byte[] t = cells;
+	cells = next;
+	next = t;
+    }
+
+    @Override
+    public boolean isWrapped() {
+	return wrapped;
+    }
+
+    @Override
+    public void setWrapped(final boolean nwrapped) {
+	if (wrapped && !nwrapped) {
+	    // the halo was only ever a copy of the opposite edges
+	    for (int x = 2; x < boardSize + 2; x++) {
+		cells[x * stride + 1] = 0;
+		cells[x * stride + boardSize + 2] = 0;
+	    }
+	    Arrays.fill(cells, stride, 2 * stride, (byte) 0);
+	    Arrays.fill(cells, (boardSize + 2) * stride,
+			(boardSize + 3) * stride, (byte) 0);
+	}
+	wrapped = nwrapped;
+    }
+
+    /*
+     * Copy the edge columns into the border columns on the opposite side,
+     * then the edge rows, border included, into the opposite border rows,
+     * which fills in the corners too.
+     */
+    private void refreshHalo() {
+	for (int x = 2; x < boardSize + 2; x++) {
+	    final int row = x * stride;
+	    cells[row + 1] = cells[row + boardSize + 1];
+	    cells[row + boardSize + 2] = cells[row + 2];
+	}
+	System.arraycopy(cells, (boardSize + 1) * stride, cells, stride,
+			 stride);
+	System.arraycopy(cells, 2 * stride, cells, (boardSize + 2) * stride,
+			 stride);
+    }
+
+    /*
+     * Each row is computed keeping the number of live cells in the three
+     * columns around the current cell, so moving along the row only needs
+     * the column that comes into view.
+     */
+    private void stepRows(final int from, final int to) {
+	final PctRule r = rule;
+	final byte[] c = cells;
+	final byte[] n = next;
+	final int end = boardSize + 3;
+	for (int x = from; x < to; x++) {
+	    final int mid = x * stride;
+	    final int up = mid - stride;
+	    final int down = mid + stride;
+	    int left = live(c[up]) + live(c[mid]) + live(c[down]);
+	    int centre = live(c[up + 1]) + live(c[mid + 1]) + live(c[down + 1]);
+	    for (int y = 1; y < end; y++) {
+		final int right = live(c[up + y + 1]) + live(c[mid + y + 1])
+		    + live(c[down + y + 1]);
+		final int state = c[mid + y] & 0xff;
+		n[mid + y] = (byte) r.next(state,
+				left + centre + right - live(c[mid + y]));
+		left = centre;
+		centre = right;
+	    }
+	}
+    }
+
+    /*
+     * 1 if the state is alive, otherwise 0, without a branch, as the
+     * states of neighbouring cells are too random to predict.
+     */
+    private static int live(final byte state) {
+	return (((state & 0xff) ^ 1) - 1) >>> 31;
+    }
+}
@@ -0,0 +1,564 @@
+/*
+ * SPDX-License-Identifier: CDDL-1.0
+ *
+ * CDDL HEADER START
+ *
+ * This file and its contents are supplied under the terms of the
+ * Common Development and Distribution License ("CDDL"), version 1.0.
+ * You may only use this file in accordance with the terms of version
+ * 1.0 of the CDDL.
+ *
+ * A full copy of the text of the CDDL should have accompanied this
+ * source. A copy of the CDDL is also available via the Internet at
+ * http://www.illumos.org/license/CDDL.
+ *
+ * CDDL HEADER END
+ *
+ * Copyright 2026 Peter Tribble
+ *
+ */
+
+package uk.co.petertribble.life;
+
+import java.util.Arrays;
+
+/**
+ * A pctlife engine using Gosper's HashLife algorithm. The universe is held
+ * as a quadtree of canonical nodes, so that identical regions are only
+ * stored once, and the result of advancing each node is memoised, so that
+ * repetitive patterns can be advanced by huge numbers of generations.
+ *
+ * <p>Each step advances the universe by 2<sup>k</sup> generations, where k
+ * is the step exponent, 0 by default. Unlike the other engines the universe
+ * is unbounded; the board is a window onto the middle of it, and patterns
+ * that leave the board carry on evolving out of sight.
+ *
+ * <p>Once a step leaves more nodes than the configured cache size, the
+ * memoised results are discarded and any nodes no longer reachable from the
+ * universe are freed.
+ */
+public final class PctHashEngine implements PctEngine {
+
+    /** The default maximum number of nodes to keep. */
+    public static final int DEF_MAX_NODES = 1 << 22;
+    /** The largest supported step exponent. */
+    public static final int MAX_STEP_EXPONENT = 48;
+
+    /** The smallest number of buckets in the node table. */
+    private static final int MIN_BUCKETS = 1 << 10;
+
+    /** The size in cells of the board. */
+    private final int boardSize;
+    /** The current size in cells of the middle of the board. */
+    private final int boardMid;
+    /** The number of nodes above which unreachable nodes are freed. */
+    private final int maxNodes;
+
+    /** The canonical dead cell. */
+    private final Node dead = new Node(0L);
+    /** The canonical live cell. */
+    private final Node alive = new Node(1L);
+    /** The canonical empty node at each level, created as needed. */
+    private Node[] empties = new Node[MAX_STEP_EXPONENT + 8];
+
+    /** The buckets of the hash table of canonical nodes. */
+    private Node[] buckets = new Node[MIN_BUCKETS];
+    /** The number of nodes in the hash table. */
+    private int nodeCount;
+    /** The mark used by the most recent garbage collection. */
+    private int gcMark;
+
+    /** The universe, centred on the middle of the board. */
+    private Node root;
+    /** The step exponent; each step advances 2^stepExponent generations. */
+    private int stepExponent;
+    /** The rule used to compute each generation. */
+    private PctRule rule = PctRule.CONWAY;
+
+    /**
+     * A cache of the visible board, rebuilt from the universe when needed.
+     */
+    private final boolean[][] labels;
+    /** Whether labels needs to be rebuilt. */
+    private boolean labelsStale;
+
+    /**
+     * Construct a new PctHashEngine of the given size, with the default
+     * cache size.
+     *
+     * @param nboardSize the size of the board
+     */
+    public PctHashEngine(final int nboardSize) {
+	this(nboardSize, DEF_MAX_NODES);
+    }
+
+    /**
+     * Construct a new PctHashEngine of the given size.
+     *
+     * @param nboardSize the size of the board
+     * @param nmaxNodes the number of nodes above which the cache is pruned
+     */
+    public PctHashEngine(final int nboardSize, final int nmaxNodes) {
+	boardSize = nboardSize;
+	boardMid = boardSize / 2;
+	maxNodes = nmaxNodes;
+	labels = new boolean[boardSize][boardSize];
+	root = empty(3);
+    }
+
+    @Override
+    public int getBoardSize() {
+	return boardSize;
+    }
+
+    @Override
+    public PctRule getRule() {
+	return rule;
+    }
+
+    @Override
+    public void setRule(final PctRule nrule) {
+	if (!nrule.require(1, 2).equals(rule)) {
+	    rule = nrule;
+	    // the memoised results depend on the rule
+	    clearResults();
+	}
+    }
+
+    /**
+     * Set the step exponent, so that each step advances the universe by
+     * 2<sup>k</sup> generations.
+     *
+     * @param k the new step exponent
+     */
+    public void setStepExponent(final int k) {
+	if (k < 0 || k > MAX_STEP_EXPONENT) {
+	    throw new IllegalArgumentException("Invalid step exponent " + k);
+	}
+	if (k != stepExponent) {
+	    stepExponent = k;
+	    // the memoised results depend on the step size
+	    clearResults();
+	}
+    }
+
+    /**
+     * Get the step exponent.
+     *
+     * @return the step exponent
+     */
+    public int getStepExponent() {
+	return stepExponent;
+    }
+
+    @Override
+    public long getGenerationsPerStep() {
+	return 1L << stepExponent;
+    }
+
+    @Override
+    public long getPopulation() {
+	return root.population;
+    }
+
+    /**
+     * Get the number of nodes currently held in the cache.
+     *
+     * @return the number of canonical nodes
+     */
+    public int getNodeCount() {
+	return nodeCount;
+    }
+
+    @Override
+    public String getActivity() {
+	return getNodeCount() + " nodes cached";
+    }
+
+    @Override
+    public void clear() {
+	root = empty(3);
+	labelsStale = true;
+    }
+
+    @Override
+    public void setAlive(final int x, final int y) {
+	final long ux = (long) x - boardMid;
+	final long uy = (long) y - boardMid;
+	while (!contains(root, ux, uy)) {
+	    root = centre(root);
+	}
+	final long half = 1L << (root.level - 1);
+	root = set(root, ux + half, uy + half);
+	labelsStale = true;
+    }
+
+    @Override
+    public boolean isAlive(final int x, final int y) {
+	if (labelsStale) {
+	    refreshLabels();
+	}
+	return labels[x][y];
+    }
+
+    /**
+     * Advance the universe by 2<sup>k</sup> generations, where k is the
+     * step exponent.
+     */
+    @Override
+    public void step() {
+	if (root.population == 0L) {
+	    return;
+	}
+	// make sure the universe is big enough, and the pattern is well
+	// inside it, and then pad once more so nothing can escape
+	while (root.level < stepExponent + 2
+	       || innerPopulation(root) != root.population) {
+	    root = centre(root);
+	}
+	root = successor(centre(root));
+	labelsStale = true;
+	if (nodeCount > maxNodes) {
+	    collect();
+	}
+    }
+
+    /*
+     * Whether the universe coordinates fall inside the given root node.
+     */
+    private static boolean contains(final Node n, final long ux,
+				    final long uy) {
+	final long half = 1L << (n.level - 1);
+	return ux >= -half && ux < half && uy >= -half && uy < half;
+    }
+
+    /*
+     * The population of the middle quarter of a node.
+     */
+    private static long innerPopulation(final Node n) {
+	return n.nw.se.population + n.ne.sw.population + n.sw.ne.population
+	    + n.se.nw.population;
+    }
+
+    private Node set(final Node n, final long x, final long y) {
+	if (n.level == 0) {
+	    return alive;
+	}
+	final long half = 1L << (n.level - 1);
+	if (y < half) {
+	    if (x < half) {
+		return join(set(n.nw, x, y), n.ne, n.sw, n.se);
+	    }
+	    return join(n.nw, set(n.ne, x - half, y), n.sw, n.se);
+	}
+	if (x < half) {
+	    return join(n.nw, n.ne, set(n.sw, x, y - half), n.se);
+	}
+	return join(n.nw, n.ne, n.sw, set(n.se, x - half, y - half));
+    }
+
+    private void refreshLabels() {
+	for (final boolean[] row : labels) {
+	    Arrays.fill(row, false);
+	}
+	final long half = 1L << (root.level - 1);
+	render(root, boardMid - half, boardMid - half);
+	labelsStale = false;
+    }
+
+    /*
+     * Copy the live cells of a node whose top left corner is at the given
+     * board coordinates into labels, skipping empty nodes and any part of
+     * the node that lies outside the board.
+     */
+    private void render(final Node n, final long x0, final long y0) {
+	final long size = 1L << n.level;
+	if (n.population == 0L || x0 >= boardSize || y0 >= boardSize
+		|| x0 + size <= 0 || y0 + size <= 0) {
+	    return;
+	}
+	if (n.level == 0) {
+	    labels[(int) x0][(int) y0] = true;
+	    return;
+	}
+	final long half = size >> 1;
+	render(n.nw, x0, y0);
+	render(n.ne, x0 + half, y0);
+	render(n.sw, x0, y0 + half);
+	render(n.se, x0 + half, y0 + half);
+    }
+
+    /*
+     * Return the empty node at the given level.
+     */
+    private Node empty(final int level) {
+	if (level >= empties.length) {
+	    empties = Arrays.copyOf(empties, level + 1);
+	}
+	if (empties[level] == null) {
+	    if (level == 0) {
+		empties[level] = dead;
+	    } else {
+		final Node e = empty(level - 1);
+		empties[level] = join(e, e, e, e);
+	    }
+	}
+	return empties[level];
+    }
+
+    /*
+     * Return a node one level up, with the given node in the middle.
+     */
+    private Node centre(final Node n) {
+	final Node e = empty(n.level - 1);
+	return join(join(e, e, e, n.nw), join(e, e, n.ne, e),
+		    join(e, n.sw, e, e), join(n.se, e, e, e));
+    }
+
+    /*
+     * Return the canonical node with the given quadrants, creating it if
+     * it doesn't already exist.
+     */
+    private Node join(final Node nw, final Node ne, final Node sw,
+		      final Node se) {
+	final int h = Node.hash(nw, ne, sw, se);
+	final int idx = h & (buckets.length - 1);
+	for (Node n = buckets[idx]; n != null; n = n.next) {
+	    if (n.nw == nw && n.ne == ne && n.sw == sw && n.se == se) {
+		return n;
+	    }
+	}
+	final Node n = new Node(nw, ne, sw, se, h);
+	n.next = buckets[idx];
+	buckets[idx] = n;
+	nodeCount++;
+	if (nodeCount > buckets.length) {
+	    rehash(buckets.length * 2);
+	}
+	return n;
+    }
+
+    private void rehash(final int nbuckets) {
+	final Node[] nb = new Node[nbuckets];
+	for (Node head : buckets) {
+	    while (head != null) {
+		final Node n = head;
+		head = head.next;
+		final int idx = n.hash & (nbuckets - 1);
+		n.next = nb[idx];
+		nb[idx] = n;
+	    }
+	}
+	buckets = nb;
+    }
+
+    /*
+     * Return the centre of the given node, advanced by 2^j generations,
+     * where j is the smaller of the step exponent and two less than the
+     * level of the node.
+     */
+    private Node successor(final Node n) {
+	if (n.result != null) {
+	    return n.result;
+	}
+	final Node r;
+	if (n.population == 0L) {
+	    r = n.nw;
+	} else if (n.level == 2) {
+	    r = base(n);
+	} else {
+	    final Node c1 = successor(n.nw);
+	    final Node c2 = successor(join(n.nw.ne, n.ne.nw,
+					   n.nw.se, n.ne.sw));
+	    final Node c3 = successor(n.ne);
+	    final Node c4 = successor(join(n.nw.sw, n.nw.se,
+					   n.sw.nw, n.sw.ne));
+	    final Node c5 = successor(join(n.nw.se, n.ne.sw,
+					   n.sw.ne, n.se.nw));
+	    final Node c6 = successor(join(n.ne.sw, n.ne.se,
+					   n.se.nw, n.se.ne));
+	    final Node c7 = successor(n.sw);
+	    final Node c8 = successor(join(n.sw.ne, n.se.nw,
+					   n.sw.se, n.se.sw));
+	    final Node c9 = successor(n.se);
+	    if (stepExponent < n.level - 2) {
+		// the nine have been advanced far enough, just stitch
+		// their middles together
+		r = join(join(c1.se, c2.sw, c4.ne, c5.nw),
+			 join(c2.se, c3.sw, c5.ne, c6.nw),
+			 join(c4.se, c5.sw, c7.ne, c8.nw),
+			 join(c5.se, c6.sw, c8.ne, c9.nw));
+	    } else {
+		r = join(successor(join(c1, c2, c4, c5)),
+			 successor(join(c2, c3, c5, c6)),
+			 successor(join(c4, c5, c7, c8)),
+			 successor(join(c5, c6, c8, c9)));
+	    }
+	}
+	n.result = r;
+	return r;
+    }
+
+    /*
+     * Advance the middle 2x2 of a 4x4 node by one generation.
+     */
+    private Node base(final Node n) {
+	int bits = 0;
+	bits |= cellBits(n.nw, 0, 0);
+	bits |= cellBits(n.ne, 2, 0);
+	bits |= cellBits(n.sw, 0, 2);
+	bits |= cellBits(n.se, 2, 2);
+	return join(nextCell(bits, 1, 1), nextCell(bits, 2, 1),
+		     nextCell(bits, 1, 2), nextCell(bits, 2, 2));
+    }
+
+    private static int cellBits(final Node n, final int x, final int y) {
+	int bits = 0;
+	if (n.nw.population != 0L) {
+	    bits |= 1 << (y * 4 + x);
+	}
+	if (n.ne.population != 0L) {
+	    bits |= 1 << (y * 4 + x + 1);
+	}
+	if (n.sw.population != 0L) {
+	    bits |= 1 << ((y + 1) * 4 + x);
+	}
+	if (n.se.population != 0L) {
+	    bits |= 1 << ((y + 1) * 4 + x + 1);
+	}
+	return bits;
+    }
+
+    private Node nextCell(final int bits, final int x, final int y) {
+	int inear = 0;
+	for (int dy = -1; dy <= 1; dy++) {
+	    for (int dx = -1; dx <= 1; dx++) {
+		if ((dx != 0 || dy != 0)
+			&& (bits & (1 << ((y + dy) * 4 + x + dx))) != 0) {
+		    inear++;
+		}
+	    }
+	}
+	final boolean live = (bits & (1 << (y * 4 + x))) != 0;
+	return rule.next(live ? 1 : 0, inear) == 1 ? alive : dead;
+    }
+
+    private void clearResults() {
+	for (Node n : buckets) {
+	    for (; n != null; n = n.next) {
+		n.result = null;
+	    }
+	}
+    }
+
+    /*
+     * Throw away the memoised results, and free every node that can no
+     * longer be reached from the universe or the empty nodes.
+     */
+    private void collect() {
+	clearResults();
+	gcMark++;
+	mark(root);
+	for (final Node e : empties) {
+	    if (e != null) {
+		mark(e);
+	    }
+	}
+	for (int i = 0; i < buckets.length; i++) {
+	    Node keep = null;
+	    Node n = buckets[i];
+	    while (n != null) {
+		final Node nnext = n.next;
+		if (n.mark == gcMark) {
+		    n.next = keep;
+		    keep = n;
+		} else {
+		    n.next = null;
+		    nodeCount--;
+		}
+		n = nnext;
+	    }
+	    buckets[i] = keep;
+	}
+	int nbuckets = buckets.length;
+	while (nbuckets > MIN_BUCKETS && nodeCount < nbuckets / 4) {
+	    nbuckets /= 2;
+	}
+	if (nbuckets != buckets.length) {
+	    rehash(nbuckets);
+	}
+    }
+
+    private void mark(final Node n) {
+	if (n.level == 0 || n.mark == gcMark) {
+	    return;
+	}
+	n.mark = gcMark;
+	mark(n.nw);
+	mark(n.ne);
+	mark(n.sw);
+	mark(n.se);
+    }
+
+    /*
+     * A quadtree node. Nodes are canonical, so two nodes with the same
+     * contents are always the same object, and can be compared with ==.
+     */
+    private static final class Node {
+	/** The level; the node is 2^level cells square. */
+	private final int level;
+	/** The north west quadrant. */
+	private final Node nw;
+	/** The north east quadrant. */
+	private final Node ne;
+	/** The south west quadrant. */
+	private final Node sw;
+	/** The south east quadrant. */
+	private final Node se;
+	/** The number of live cells. */
+	private final long population;
+	/** The hash of the quadrants. */
+	private final int hash;
+	/** The memoised centre, advanced in time. */
+	private Node result;
+	/** The next node in the same hash bucket. */
+	private Node next;
+	/** The mark of the last garbage collection to reach this node. */
+	private int mark;
+
+	/*
+	 * Create a leaf node, a single cell.
+	 */
+	Node(final long npopulation) {
+	    level = 0;
+	    nw = null;
+	    ne = null;
+	    sw = null;
+	    se = null;
+	    population = npopulation;
+	    hash = (int) npopulation;
+	}
+
+	Node(final Node nnw, final Node nne, final Node nsw, final Node nse,
+	     final int nhash) {
+	    level = nnw.level + 1;
+	    nw = nnw;
+	    ne = nne;
+	    sw = nsw;
+	    se = nse;
+	    population = nw.population + ne.population + sw.population
+		+ se.population;
+	    hash = nhash;
+	}
+
+	static int hash(final Node nw, final Node ne, final Node sw,
+			final Node se) {
+	    int h = nw.hash;
+	    h = h * 1_000_003 + ne.hash;
+	    h = h * 1_000_003 + sw.hash;
+	    h = h * 1_000_003 + se.hash;
+	    h ^= nw.level;
+	    return h ^ (h >>> 16);
+	}
+    }
+}
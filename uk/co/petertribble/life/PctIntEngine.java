@@ -0,0 +1,224 @@
+/*
+ * SPDX-License-Identifier: CDDL-1.0
+ *
+ * CDDL HEADER START
+ *
+ * This file and its contents are supplied under the terms of the
+ * Common Development and Distribution License ("CDDL"), version 1.0.
+ * You may only use this file in accordance with the terms of version
+ * 1.0 of the CDDL.
+ *
+ * A full copy of the text of the CDDL should have accompanied this
+ * source. A copy of the CDDL is also available via the Internet at
+ * http://www.illumos.org/license/CDDL.
+ *
+ * CDDL HEADER END
+ *
+ * Copyright 2026 Peter Tribble
+ *
+ */
+
+package uk.co.petertribble.life;
+
+import java.util.Arrays;
+
+/**
+ * The original pctlife engine, holding each cell in an int and computing
+ * the next generation by adding up the values of the neighbouring cells.
+ */
+public final class PctIntEngine implements PctEngine {
+
+    /**
+     * The number of columns computed down a band of rows before moving
+     * across to the next block of columns, so that the rows above and below
+     * are still in the cache when they're needed again.
+     */
+    private static final int BLOCK = 1024;
+
+    /** The size in cells of the board. */
+    private final int boardSize;
+
+    /**
+     * An array of int[] for the current generation.
+     */
+    private int[][] oldgen;
+    /**
+     * An array of int[] for the next generation.
+     */
+    private int[][] newgen;
+    /**
+     * A row of dead cells, standing in for the rows beyond the border.
+     */
+    private final int[] dead;
+
+    /** The rule used to compute each generation. */
+    private PctRule rule = PctRule.CONWAY;
+    /** Whether the edges wrap round, with the border as a halo. */
+    private boolean wrapped;
+
+    /** The bands to split the work of each step into. */
+    private final PctBands bands;
+    /** Compute a band of rows of the next generation. */
+    private final PctBands.Band stepBand = this::stepRows;
+
+    /**
+     * Construct a new PctIntEngine of the given size.
+     *
+     * @param nboardSize the size of the board
+     */
+    public PctIntEngine(final int nboardSize) {
+	this(nboardSize, new PctBands(1));
+    }
+
+    /**
+     * Construct a new PctIntEngine of the given size, splitting the work of
+     * each step into bands of rows.
+     *
+     * @param nboardSize the size of the board
+     * @param nbands the bands to split each step into
+     */
+    public PctIntEngine(final int nboardSize, final PctBands nbands) {
+	boardSize = nboardSize;
+	bands = nbands;
+	oldgen = new int[boardSize + 2][boardSize + 2];
+	newgen = new int[boardSize + 2][boardSize + 2];
+	dead = new int[boardSize + 2];
+    }
+
+    @Override
+    public int getBoardSize() {
+	return boardSize;
+    }
+
+    @Override
+    public void clear() {
+	for (final int[] row : oldgen) {
+	    Arrays.fill(row, 0);
+	}
+    }
+
+    @Override
+    public void setAlive(final int x, final int y) {
+	if (x >= 0 && x < boardSize && y >= 0 && y < boardSize) {
+	    oldgen[x + 1][y + 1] = 1;
+	}
+    }
+
+    @Override
+    public void setAliveRun(final int x, final int y, final int length) {
+	if (y >= 0 && y < boardSize) {
+	    final int to = (int) Math.min((long) x + length, boardSize);
+	    for (int i = Math.max(x, 0); i < to; i++) {
+		oldgen[i + 1][y + 1] = 1;
+	    }
+	}
+    }
+
+    @Override
+    public boolean isAlive(final int x, final int y) {
+	return oldgen[x + 1][y + 1] == 1;
+    }
+
+    @Override
+    public PctRule getRule() {
+	return rule;
+    }
+
+    @Override
+    public void setRule(final PctRule nrule) {
+	rule = nrule.require(1, 2);
+    }
+
+    @Override
+    public boolean isWrapped() {
+	return wrapped;
+    }
+
+    @Override
+    public void setWrapped(final boolean nwrapped) {
+	if (wrapped && !nwrapped) {
+	    // the halo was only ever a copy of the opposite edges
+	    for (int i = 0; i < boardSize + 2; i++) {
+		oldgen[i][0] = 0;
+		oldgen[i][boardSize + 1] = 0;
+	    }
+	    Arrays.fill(oldgen[0], 0);
+	    Arrays.fill(oldgen[boardSize + 1], 0);
+	}
+	wrapped = nwrapped;
+    }
+
+    /**
+     * Run one step of the game.
+     *
+     * <p>Essentially, just add up the values of the neighbouring cells.
+     * Each cell of the next generation is computed in a single pass, from
+     * the row it's in and the rows either side, and the two generations
+     * then swap places. The rows, including the border, are split into
+     * bands. If the board wraps round, the border is refreshed from the
+     * opposite edges first, and only the interior is computed.
+     */
+    @Override
+    public void step() {
+	if (wrapped) {
+	    refreshHalo();
+	    bands.run(1, boardSize + 1, stepBand);
+	} else {
+	    bands.run(0, boardSize + 2, stepBand);
+	}
+	final int[][] t = oldgen;
+	oldgen = newgen;
+	newgen = t;
+    }
+
+    /*
+     * Copy the edge columns into the border columns on the opposite side,
+     * then the edge rows, border included, into the opposite border rows,
+     * which fills in the corners too.
+     */
+    private void refreshHalo() {
+	for (int i = 1; i <= boardSize; i++) {
+	    oldgen[i][0] = oldgen[i][boardSize];
+	    oldgen[i][boardSize + 1] = oldgen[i][1];
+	}
+	System.arraycopy(oldgen[boardSize], 0, oldgen[0], 0, boardSize + 2);
+	System.arraycopy(oldgen[1], 0, oldgen[boardSize + 1], 0,
+			 boardSize + 2);
+    }
+
+    /*
+     * Work down the band a block of columns at a time. Along each row, the
+     * sums of the three columns around the current cell are kept, so moving
+     * along only needs the column that comes into view. Beyond the border
+     * the cells are dead, so the row above the first row and below the last
+     * are the dead row, and the column past the last border column is
+     * handled on its own.
+     */
+    private void stepRows(final int from, final int to) {
+	final PctRule r = rule;
+	final int[][] old = oldgen;
+	final int first = wrapped ? 1 : 0;
+	final int last = wrapped ? boardSize + 1 : boardSize + 2;
+	for (int j0 = first; j0 < last; j0 += BLOCK) {
+	    final int j1 = Math.min(j0 + BLOCK, last);
+	    final int inner = Math.min(j1, boardSize + 1);
+	    for (int i = from; i < to; i++) {
+		final int[] up = i > 0 ? old[i - 1] : dead;
+		final int[] mid = old[i];
+		final int[] down = i <= boardSize ? old[i + 1] : dead;
+		final int[] out = newgen[i];
+		int left = j0 > 0 ? up[j0 - 1] + mid[j0 - 1] + down[j0 - 1] : 0;
+		int centre = up[j0] + mid[j0] + down[j0];
+		for (int j = j0; j < inner; j++) {
+		    final int right = up[j + 1] + mid[j + 1] + down[j + 1];
+		    out[j] = r.next(mid[j], left + centre + right - mid[j]);
+		    left = centre;
+		    centre = right;
+		}
+		if (inner < j1) {
+		    out[inner] = r.next(mid[inner], left + centre - mid[inner]);
+		}
+	    }
+	}
+    }
+}
@@ -20,17 +20,25 @@
 
 package uk.co.petertribble.life;
 
+import java.awt.BorderLayout;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.KeyEvent;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
 import java.io.File;
+import java.io.IOException;
+import javax.management.JMException;
 import javax.swing.ImageIcon;
+import javax.swing.JFileChooser;
 import javax.swing.JFrame;
+import javax.swing.JLabel;
 import javax.swing.JMenu;
 import javax.swing.JMenuBar;
 import javax.swing.JMenuItem;
+import javax.swing.JOptionPane;
+import javax.swing.JPanel;
+import javax.swing.Timer;
 
 /**
  * The main driver frame for PctLife.
@@ -44,69 +52,37 @@ public final class PctLife extends JFrame implements ActionListener {
      */
     private static final int INTERVAL = 400;
     /**
-     * The default size in cells of the life board. This is the visible size,
-     * there will always be an invisible 1-cell strip around the border.
+     * The interval between updates of the status line, in milliseconds.
      */
-    private static final int DEF_BOARD_SIZE = 128;
+    private static final int STATUS_INTERVAL = 1000;
     /**
-     * The minimum size in cells of the life board. This is the visible size,
-     * there will always be an invisible 1-cell strip around the border.
+     * The options set on the command line.
      */
-    private static final int MIN_BOARD_SIZE = 32;
+    private final PctOptions options;
 
     /**
-     * The default size, in pixels, of each cell.
-     */
-    private static final int DEF_CELL_SIZE = 5;
-    /**
-     * The minimum size, in pixels, of each cell.
-     */
-    private static final int MIN_CELL_SIZE = 1;
-
-    /**
-     * The default gap between cells, in pixels.
-     */
-    private static final int DEF_CELL_GAP = 1;
-    /**
-     * The maximum gap between cells, in pixels.
-     */
-    private static final int MAX_CELL_GAP = 3;
-
-    /**
-     * The default density of cells, in other words the fraction of the board
-     * that will be covered by cells.
-     */
-    private static final double DEF_CELL_DENSITY = 0.15d;
-    /**
-     * The minimum initial cell density.
-     */
-    private static final double MIN_CELL_DENSITY = 0.01d;
-    /**
-     * The maximum initial cell density.
+     * The board to be shown.
      */
-    private static final double MAX_CELL_DENSITY = 0.99d;
+    private PctBoard board;
 
     /**
-     * The size in cells of the life board.
-     */
-    private static int boardSize = DEF_BOARD_SIZE;
-    /**
-     * The size, in pixels, of each cell.
+     * The status line, showing the generation and the speed of the game.
      */
-    private static int cellSize = DEF_CELL_SIZE;
+    private final JLabel statusLabel = new JLabel(" ");
     /**
-     * The gap between cells, in pixels.
+     * The generation shown at the last update of the status line.
      */
-    private static int cellGap = DEF_CELL_GAP;
+    private long lastGeneration;
     /**
-     * The gap between cells, in pixels.
+     * The time of the last update of the status line, in nanoseconds.
      */
-    private static double cellDensity = DEF_CELL_DENSITY;
+    private long lastTime = System.nanoTime();
 
     /**
-     * The board to be shown.
+     * The file chooser for opening patterns and saving checkpoints, created
+     * when first needed.
      */
-    private PctBoard board;
+    private JFileChooser chooser;
 
     /**
      * Menu button to exit the application.
@@ -120,12 +96,20 @@ public final class PctLife extends JFrame implements ActionListener {
      * Menu button to stop the current game.
      */
     private JMenuItem stopItem;
+    /**
+     * Menu button to open a pattern or checkpoint.
+     */
+    private JMenuItem openItem;
+    /**
+     * Menu button to save a checkpoint.
+     */
+    private JMenuItem saveItem;
 
     /**
      * Construct a new PctLife instance, starting with a random pattern.
      */
     public PctLife() {
-	this((File) null);
+	this(new PctOptions(), null);
     }
 
     /**
@@ -135,23 +119,45 @@ public final class PctLife extends JFrame implements ActionListener {
      * @param infile the file to load the initial pattern from
      */
     public PctLife(final File infile) {
+	this(new PctOptions(), infile);
+    }
+
+    /**
+     * Construct a new PctLife instance with the given options. If a file is
+     * supplied, it will be loaded, else a random pattern will start the game.
+     *
+     * @param noptions the options to use
+     * @param infile the file to load the initial pattern from
+     */
+    public PctLife(final PctOptions noptions, final File infile) {
 	super("PctLife");
-	board = new PctBoard(boardSize, cellSize, cellGap);
+	options = noptions;
+	board = new PctBoard(options.createEngine(), options.getCellSize(),
+			options.getCellGap());
+	board.setRaster(options.isRaster());
 
 	addWindowListener(new WindowExit());
 
-	setContentPane(board);
+	final JPanel jp = new JPanel(new BorderLayout());
+	jp.add(board);
+	jp.add(statusLabel, BorderLayout.SOUTH);
+	setContentPane(jp);
 
-	// FIXME add Load item
 	final JMenu jmf = new JMenu("File");
 	jmf.setMnemonic(KeyEvent.VK_F);
 	newItem = new JMenuItem("New", KeyEvent.VK_N);
 	newItem.addActionListener(this);
+	openItem = new JMenuItem("Open...", KeyEvent.VK_O);
+	openItem.addActionListener(this);
+	saveItem = new JMenuItem("Save Checkpoint...", KeyEvent.VK_C);
+	saveItem.addActionListener(this);
 	exitItem = new JMenuItem("Exit", KeyEvent.VK_X);
 	exitItem.addActionListener(this);
 	stopItem = new JMenuItem("Stop/Start", KeyEvent.VK_S);
 	stopItem.addActionListener(this);
 	jmf.add(newItem);
+	jmf.add(openItem);
+	jmf.add(saveItem);
 	jmf.add(stopItem);
 	jmf.addSeparator();
 	jmf.add(exitItem);
@@ -160,6 +166,7 @@ public final class PctLife extends JFrame implements ActionListener {
 	jmb.add(jmf);
 	jmb.add(new PctColorMenu(board));
 	jmb.add(new PctSpeedMenu(board, INTERVAL));
+	jmb.add(new PctViewMenu(board));
 	setJMenuBar(jmb);
 
 	setIconImage(new ImageIcon(this.getClass().getClassLoader()
@@ -167,14 +174,90 @@ public final class PctLife extends JFrame implements ActionListener {
 
 	pack();
 	if (infile == null) {
-	    board.randomize(cellDensity);
+	    board.randomize(options.getCellDensity());
 	} else {
 	    if (!board.loadPattern(infile)) {
-		bailOut("Failed to load pattern");
+		PctOptions.bailOut("Failed to load pattern");
 	    }
 	}
 	setVisible(true);
+	try {
+	    board.registerMBean();
+	} catch (JMException jme) {
+	    System.err.println("Failed to register MBean: " // NOPMD
+			       + jme.getMessage());
+	}
+	if (options.getCycleAction() != null) {
+	    board.detectCycles(options.getCycleAction(),
+			       options.getCellDensity());
+	}
 	board.startLoop(INTERVAL);
+	new Timer(STATUS_INTERVAL, e -> updateStatus()).start();
+	if (options.getCheckpointFile() != null) {
+	    new Timer(1000 * options.getCheckpointInterval(),
+		      e -> autoCheckpoint()).start();
+	}
+    }
+
+    /*
+     * Save a checkpoint to the file given on the command line. A failure
+     * is reported, but doesn't stop the game.
+     */
+    private void autoCheckpoint() {
+	try {
+	    board.saveCheckpoint(options.getCheckpointFile());
+	} catch (IOException ioe) {
+	    System.err.println("Checkpoint failed: " // NOPMD
+			       + ioe.getMessage());
+	}
+    }
+
+    private JFileChooser getChooser() {
+	if (chooser == null) {
+	    chooser = new JFileChooser(".");
+	}
+	return chooser;
+    }
+
+    private void openFile() {
+	if (getChooser().showOpenDialog(this) == JFileChooser.APPROVE_OPTION) {
+	    final File f = chooser.getSelectedFile();
+	    if (!board.loadPattern(f)) {
+		JOptionPane.showMessageDialog(this, "Failed to load " + f,
+				"PctLife", JOptionPane.ERROR_MESSAGE);
+	    }
+	}
+    }
+
+    private void saveFile() {
+	if (getChooser().showSaveDialog(this) == JFileChooser.APPROVE_OPTION) {
+	    final File f = chooser.getSelectedFile();
+	    try {
+		board.saveCheckpoint(f);
+	    } catch (IOException ioe) {
+		JOptionPane.showMessageDialog(this, "Failed to save " + f,
+				"PctLife", JOptionPane.ERROR_MESSAGE);
+	    }
+	}
+    }
+
+    /*
+     * Show the generation being displayed, and the rate at which the
+     * generations shown have advanced since the last update, and whether
+     * the board has stabilised. A new game starts counting from zero again.
+     */
+    private void updateStatus() {
+	final long now = System.nanoTime();
+	final long generation = board.getGeneration();
+	final long gens = generation < lastGeneration ? generation
+	    : generation - lastGeneration;
+	final double rate = gens * 1.0e9 / (now - lastTime);
+	final String report = board.getCycleReport();
+	statusLabel.setText(String.format("Generation %d, %.0f gens/sec%s",
+					generation, rate,
+					report == null ? "" : ", " + report));
+	lastGeneration = generation;
+	lastTime = now;
     }
 
     class WindowExit extends WindowAdapter {
@@ -187,7 +270,11 @@ public final class PctLife extends JFrame implements ActionListener {
     @Override
     public void actionPerformed(final ActionEvent aev) {
 	if (aev.getSource() == newItem) {
-	    board.randomize(cellDensity);
+	    board.randomize(options.getCellDensity());
+	} else if (aev.getSource() == openItem) {
+	    openFile();
+	} else if (aev.getSource() == saveItem) {
+	    saveFile();
 	} else if (aev.getSource() == stopItem) {
 	    board.stopstart();
 	} else if (aev.getSource() == exitItem) {
@@ -195,103 +282,31 @@ public final class PctLife extends JFrame implements ActionListener {
 	}
     }
 
-    private static void bailOut(final String msg) {
-	System.err.println(msg); // NOPMD
-	System.exit(1);
-    }
-
     /**
-     * Create a new Life game. The supported flags are:
-     * -b The board size
-     * -g The gap between cells
-     * -s The size of each cell
-     * -d The initial cell density
+     * Create a new Life game. The supported flags are those handled by
+     * PctOptions, followed by an optional pattern file.
      *
      * @param args command line arguments
      */
     public static void main(final String[] args) {
-	if (args.length > 0) {
-	    int i = 0;
-	    while (i < args.length) {
-		if ("-s".equals(args[i])) {
-		    ++i;
-		    if (i < args.length) {
-			try {
-			    cellSize = Integer.parseInt(args[i]);
-			} catch (NumberFormatException ex) {
-			    bailOut("Invalid cell size!");
-			}
-			if (cellSize < MIN_CELL_SIZE) {
-			    bailOut("Cell size too small!");
-			}
-		    } else {
-			bailOut("Expecting an argument to -s!");
-		    }
-		} else if ("-b".equals(args[i])) {
-		    ++i;
-		    if (i < args.length) {
-			try {
-			    boardSize = Integer.parseInt(args[i]);
-			} catch (NumberFormatException ex) {
-			    bailOut("Invalid board size!");
-			}
-			if (boardSize < MIN_BOARD_SIZE) {
-			    bailOut("Board size too small!");
-			}
-		    } else {
-			bailOut("Expecting an argument to -b!");
-		    }
-		} else if ("-g".equals(args[i])) {
-		    ++i;
-		    if (i < args.length) {
-			try {
-			    cellGap = Integer.parseInt(args[i]);
-			} catch (NumberFormatException ex) {
-			    bailOut("Invalid cell gap!");
-			}
-			if (cellGap < 0) {
-			    bailOut("Cell gap too small!");
-			}
-			if (cellGap > MAX_CELL_GAP) {
-			    bailOut("Cell gap too large!");
-			}
-		    } else {
-			bailOut("Expecting an argument to -g!");
-		    }
-		} else if ("-d".equals(args[i])) {
-		    ++i;
-		    if (i < args.length) {
-			try {
-			    cellDensity = Double.parseDouble(args[i]);
-			} catch (NumberFormatException ex) {
-			    bailOut("Invalid cell density!");
-			}
-			if (cellDensity < MIN_CELL_DENSITY) {
-			    bailOut("Cell density too small!");
-			}
-			if (cellDensity > MAX_CELL_DENSITY) {
-			    bailOut("Cell density too large!");
-			}
-		    } else {
-			bailOut("Expecting an argument to -d!");
-		    }
-		} else {
-		    break;
-		}
-		++i;
+	final PctOptions options = new PctOptions();
+	int i = 0;
+	while (i < args.length) {
+	    final int next = options.parseFlag(args, i);
+	    if (next == i) {
+		break;
 	    }
-	    if (i < args.length) {
-		final File fin = new File(args[i]);
-		if (fin.exists()) {
-		    new PctLife(fin);
-		} else {
-		    bailOut("File " + fin + " does not exist!");
-		}
+	    i = next;
+	}
+	if (i < args.length) {
+	    final File fin = new File(args[i]);
+	    if (fin.exists()) {
+		new PctLife(options, fin);
 	    } else {
-		new PctLife();
+		PctOptions.bailOut("File " + fin + " does not exist!");
 	    }
 	} else {
-	    new PctLife();
+	    new PctLife(options, null);
 	}
     }
 }
@@ -0,0 +1,211 @@
+/*
+ * SPDX-License-Identifier: CDDL-1.0
+ *
+ * CDDL HEADER START
+ *
+ * This file and its contents are supplied under the terms of the
+ * Common Development and Distribution License ("CDDL"), version 1.0.
+ * You may only use this file in accordance with the terms of version
+ * 1.0 of the CDDL.
+ *
+ * A full copy of the text of the CDDL should have accompanied this
+ * source. A copy of the CDDL is also available via the Internet at
+ * http://www.illumos.org/license/CDDL.
+ *
+ * CDDL HEADER END
+ *
+ * Copyright 2026 Peter Tribble
+ *
+ */
+
+package uk.co.petertribble.life;
+
+import java.util.Arrays;
+
+/**
+ * A pctlife engine for Larger than Life rules, whose neighbourhoods are
+ * squares of radius r around each cell. Rather than adding up the
+ * (2r+1)^2 cells around each cell, each step first builds a summed-area
+ * table, holding for each position the number of live cells above and to
+ * the left of it. The count for any square is then found from the 4
+ * entries at its corners, so a step costs the same whatever the range.
+ *
+ * <p>Cells are held one per byte in a flat array. Every cell off the board
+ * is dead; the summed-area table is padded by r on each side, so that the
+ * squares around cells near the edges need no special cases.
+ */
+public final class PctLtlEngine implements PctEngine {
+
+    /** The size in cells of the board. */
+    private final int boardSize;
+
+    /** The current generation. */
+    private byte[] cells;
+    /** The next generation. */
+    private byte[] next;
+
+    /**
+     * The summed-area table, each entry holding the number of live cells
+     * in the rows and columns before it, in board coordinates offset by the
+     * range so that the padding comes first.
+     */
+    private int[] sums = new int[0];
+    /** The distance between the start of successive rows in sums. */
+    private int stride;
+    /** The range the summed-area table is padded for. */
+    private int range;
+
+    /** The rule used to compute each generation. */
+    private PctRule rule = PctRule.CONWAY;
+
+    /** The bands to split the work of each step into. */
+    private final PctBands bands;
+    /** Add up a band of rows, along each row. */
+    private final PctBands.Band rowBand = this::sumRows;
+    /** Add up a band of columns of the summed-area table, down each column. */
+    private final PctBands.Band columnBand = this::sumColumns;
+    /** Apply the rules to a band of rows. */
+    private final PctBands.Band ruleBand = this::ruleRows;
+
+    /**
+     * Construct a new PctLtlEngine of the given size.
+     *
+     * @param nboardSize the size of the board
+     */
+    public PctLtlEngine(final int nboardSize) {
+	this(nboardSize, new PctBands(1));
+    }
+
+    /**
+     * Construct a new PctLtlEngine of the given size, splitting the work of
+     * each step into bands of rows.
+     *
+     * @param nboardSize the size of the board
+     * @param nbands the bands to split each step into
+     */
+    public PctLtlEngine(final int nboardSize, final PctBands nbands) {
+	boardSize = nboardSize;
+	bands = nbands;
+	cells = new byte[boardSize * boardSize];
+	next = new byte[boardSize * boardSize];
+	resize(rule.getRange());
+    }
+
+    /*
+     * Allocate a summed-area table padded for the given range. The padding
+     * rows and columns before the board are never written, so stay zero.
+     */
+    private void resize(final int nrange) {
+	range = nrange;
+	stride = boardSize + 2 * range + 1;
+	sums = new int[stride * stride];
+    }
+
+    @Override
+    public int getBoardSize() {
+	return boardSize;
+    }
+
+    @Override
+    public void clear() {
+	Arrays.fill(cells, (byte) 0);
+    }
+
+    @Override
+    public void setAlive(final int x, final int y) {
+	if (x >= 0 && x < boardSize && y >= 0 && y < boardSize) {
+	    cells[x * boardSize + y] = 1;
+	}
+    }
+
+    @Override
+    public boolean isAlive(final int x, final int y) {
+	return cells[x * boardSize + y] != 0;
+    }
+
+    @Override
+    public PctRule getRule() {
+	return rule;
+    }
+
+    @Override
+    public void setRule(final PctRule nrule) {
+	rule = nrule.require(PctRule.MAX_RANGE, 2);
+	if (rule.getRange() != range) {
+	    resize(rule.getRange());
+	}
+    }
+
+    /**
+     * Run one step of the game.
+     *
+     * <p>The summed-area table is built in two passes, first running along
+     * each row, then down each column, and each pass is split into bands.
+     * The rules are then applied to bands of rows, using the count for the
+     * square around each cell, less the cell itself.
+     */
+    @Override
+    public void step() {
+	bands.run(0, boardSize, rowBand);
+	bands.run(range + 1, stride, columnBand);
+	bands.run(0, boardSize, ruleBand);
+	final byte[] t = cells;
+	cells = next;
+	next = t;
+    }
+
+    /*
+     * Fill in the rows of the table for board rows from to to, each entry
+     * holding the number of live cells before it in that row alone.
+     */
+    private void sumRows(final int from, final int to) {
+	final int start = range + 1;
+	for (int x = from; x < to; x++) {
+	    final int row = (x + range + 1) * stride;
+	    final int base = x * boardSize;
+	    int sum = 0;
+	    for (int y = 0; y < boardSize; y++) {
+		sum += cells[base + y];
+		sums[row + start + y] = sum;
+	    }
+	    Arrays.fill(sums, row + start + boardSize, row + stride, sum);
+	}
+    }
+
+    /*
+     * Add each row of the table to the one after it, for the columns from
+     * from to to. The padding rows after the board have no cells of their
+     * own, so are copies of the row before.
+     */
+    private void sumColumns(final int from, final int to) {
+	final int first = range + 2;
+	final int last = boardSize + range;
+	for (int a = first; a <= last; a++) {
+	    final int row = a * stride;
+	    for (int b = from; b < to; b++) {
+		sums[row + b] += sums[row - stride + b];
+	    }
+	}
+	for (int a = last + 1; a < stride; a++) {
+	    final int row = a * stride;
+	    System.arraycopy(sums, row - stride + from, sums, row + from,
+			     to - from);
+	}
+    }
+
+    private void ruleRows(final int from, final int to) {
+	final PctRule r = rule;
+	final int side = 2 * range + 1;
+	for (int x = from; x < to; x++) {
+	    final int top = x * stride;
+	    final int bottom = (x + side) * stride;
+	    final int base = x * boardSize;
+	    for (int y = 0; y < boardSize; y++) {
+		final int count = sums[bottom + y + side] - sums[top + y + side]
+		    - sums[bottom + y] + sums[top + y];
+		final int state = cells[base + y];
+		next[base + y] = (byte) r.next(state, count - state);
+	    }
+	}
+    }
+}
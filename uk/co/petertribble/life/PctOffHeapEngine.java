@@ -0,0 +1,433 @@
+/*
+ * SPDX-License-Identifier: CDDL-1.0
+ *
+ * CDDL HEADER START
+ *
+ * This file and its contents are supplied under the terms of the
+ * Common Development and Distribution License ("CDDL"), version 1.0.
+ * You may only use this file in accordance with the terms of version
+ * 1.0 of the CDDL.
+ *
+ * A full copy of the text of the CDDL should have accompanied this
+ * source. A copy of the CDDL is also available via the Internet at
+ * http://www.illumos.org/license/CDDL.
+ *
+ * CDDL HEADER END
+ *
+ * Copyright 2026 Peter Tribble
+ *
+ */
+
+package uk.co.petertribble.life;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A pctlife engine that keeps the board packed 64 cells to a long, as the
+ * bit engine does, but off the java heap, in direct buffers or in a
+ * memory-mapped file. Very large boards then need only a small heap, and
+ * the garbage collector never has to look at them.
+ *
+ * <p>A buffer can't hold more than 2GB, so the rows are split across as
+ * many segments as needed. There's only one copy of the board: each step
+ * overwrites a row once the row after it has been read, so the rows are
+ * split into fixed chunks, and the rows either side of each chunk saved
+ * before any chunk starts, so that chunks can be computed in parallel.
+ */
+public final class PctOffHeapEngine implements PctEngine {
+
+    /** The most bytes held in each segment of the board. */
+    private static final int MAX_SEGMENT_BYTES = 1 << 30;
+    /**
+     * The number of chunks each thread's share of the rows is split into,
+     * as PctBands does, so that a thread that finishes early can steal
+     * work from the others.
+     */
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    /** The size in cells of the board. */
+    private final int boardSize;
+    /** The number of words holding live cells in each row. */
+    private final int words;
+    /** The number of words in each row, including a dead word at the end. */
+    private final int rowLongs;
+    /** The mask of valid cells in the last word of each row. */
+    private final long lastMask;
+    /** The number of rows held in each segment. */
+    private final int rowsPerSegment;
+    /** The board, as packed rows, split into segments. */
+    private final LongBuffer[] segments;
+
+    /** The rule used to compute each generation. */
+    private PctRule rule = PctRule.CONWAY;
+    /** Whether the edges wrap round, with the border as a halo. */
+    private boolean wrapped;
+
+    /** The bands to split the work of each step into. */
+    private final PctBands bands;
+    /** The first row of each chunk, and the row after the last chunk. */
+    private final int[] chunkStarts;
+    /** The row before each chunk, as it was before this step. */
+    private final long[][] above;
+    /** The row after each chunk, as it was before this step. */
+    private final long[][] below;
+    /** The three rows each chunk is working on. */
+    private final long[][][] work;
+    /** The number of chunks this step is split into. */
+    private int chunks;
+    /** Compute a range of chunks. */
+    private final PctBands.Band chunkBand = this::stepChunks;
+
+    /**
+     * Construct a new PctOffHeapEngine of the given size, holding the board
+     * in direct buffers.
+     *
+     * @param nboardSize the size of the board
+     */
+    public PctOffHeapEngine(final int nboardSize) {
+	this(nboardSize, new PctBands(1));
+    }
+
+    /**
+     * Construct a new PctOffHeapEngine of the given size, holding the board
+     * in direct buffers, and splitting the work of each step into chunks
+     * of rows.
+     *
+     * @param nboardSize the size of the board
+     * @param nbands the bands to split each step into
+     */
+    public PctOffHeapEngine(final int nboardSize, final PctBands nbands) {
+	this(nboardSize, nbands, allocate(nboardSize));
+    }
+
+    /**
+     * Construct a new PctOffHeapEngine of the given size, holding the board
+     * in a memory-mapped file, and splitting the work of each step into
+     * chunks of rows. Anything already in the file is thrown away.
+     *
+     * @param nboardSize the size of the board
+     * @param nbands the bands to split each step into
+     * @param file the file to map the board into
+     *
+     * @throws IOException if the file can't be created or mapped
+     */
+    public PctOffHeapEngine(final int nboardSize, final PctBands nbands,
+			    final File file) throws IOException {
+	this(nboardSize, nbands, map(nboardSize, file));
+    }
+
+    private PctOffHeapEngine(final int nboardSize, final PctBands nbands,
+			     final LongBuffer[] nsegments) {
+	boardSize = nboardSize;
+	bands = nbands;
+	segments = nsegments;
+	rowLongs = rowLongs(boardSize);
+	words = rowLongs - 1;
+	lastMask = (boardSize + 2) % 64 == 0 ? -1L
+	    : (1L << ((boardSize + 2) % 64)) - 1L;
+	rowsPerSegment = rowsPerSegment(boardSize);
+	final int maxChunks = bands.getThreads() * CHUNKS_PER_THREAD;
+	chunkStarts = new int[maxChunks + 1];
+	above = new long[maxChunks][rowLongs];
+	below = new long[maxChunks][rowLongs];
+	work = new long[maxChunks][3][rowLongs];
+    }
+
+    /*
+     * Each row has the board, the border either side, and a dead word at
+     * the end; there's a border row and a dead row at each end.
+     */
+    private static int rowLongs(final int nboardSize) {
+	return (nboardSize + 2 + 63) / 64 + 1;
+    }
+
+    private static int rowsPerSegment(final int nboardSize) {
+	return Math.max(1, MAX_SEGMENT_BYTES / (rowLongs(nboardSize) * 8));
+    }
+
+    private static int segmentCount(final int nboardSize) {
+	final int nrows = rowsPerSegment(nboardSize);
+	return (nboardSize + 4 + nrows - 1) / nrows;
+    }
+
+    /*
+     * The size in bytes of the given segment; the last may be short.
+     */
+    private static int segmentBytes(final int nboardSize,
+				    final int segment) {
+	final int nrows = rowsPerSegment(nboardSize);
+	return Math.min(nrows, nboardSize + 4 - segment * nrows)
+	    * rowLongs(nboardSize) * 8;
+    }
+
+    private static LongBuffer[] allocate(final int nboardSize) {
+	final LongBuffer[] nsegments =
+	    new LongBuffer[segmentCount(nboardSize)];
+	for (int s = 0; s < nsegments.length; s++) {
+	    nsegments[s] = ByteBuffer
+		.allocateDirect(segmentBytes(nboardSize, s))
+		.order(ByteOrder.nativeOrder()).asLongBuffer();
+	}
+	return nsegments;
+    }
+
+    private static LongBuffer[] map(final int nboardSize, final File file)
+	    throws IOException {
+	final LongBuffer[] nsegments =
+	    new LongBuffer[segmentCount(nboardSize)];
+	final long segmentStride = (long) rowsPerSegment(nboardSize)
+	    * rowLongs(nboardSize) * 8;
+	try (RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		FileChannel channel = raf.getChannel()) {
+	    // truncate first, so that the whole file reads as dead cells
+	    raf.setLength(0L);
+	    raf.setLength((long) (nboardSize + 4) * rowLongs(nboardSize) * 8);
+	    for (int s = 0; s < nsegments.length; s++) {
+		nsegments[s] = channel.map(FileChannel.MapMode.READ_WRITE,
+				s * segmentStride, segmentBytes(nboardSize, s))
+		    .order(ByteOrder.nativeOrder()).asLongBuffer();
+	    }
+	}
+	return nsegments;
+    }
+
+    @Override
+    public int getBoardSize() {
+	return boardSize;
+    }
+
+    @Override
+    public void clear() {
+	for (final LongBuffer segment : segments) {
+	    for (int i = 0; i < segment.capacity(); i++) {
+		segment.put(i, 0L);
+	    }
+	}
+    }
+
+    @Override
+    public void setAlive(final int x, final int y) {
+	if (x >= 0 && x < boardSize && y >= 0 && y < boardSize) {
+	    final LongBuffer segment = segments[(x + 2) / rowsPerSegment];
+	    final int i = (x + 2) % rowsPerSegment * rowLongs + ((y + 1) >>> 6);
+	    segment.put(i, segment.get(i) | 1L << (y + 1));
+	}
+    }
+
+    @Override
+    public boolean isAlive(final int x, final int y) {
+	final LongBuffer segment = segments[(x + 2) / rowsPerSegment];
+	final int i = (x + 2) % rowsPerSegment * rowLongs + ((y + 1) >>> 6);
+	return (segment.get(i) & (1L << (y + 1))) != 0L;
+    }
+
+    /*
+     * As for the bit engine, the cells are shifted down a bit to drop the
+     * border, and the bits beyond the board are cleared.
+     */
+    @Override
+    public void copyRow(final int x, final long[] row, final int offset) {
+	final LongBuffer segment = segments[(x + 2) / rowsPerSegment];
+	final int base = (x + 2) % rowsPerSegment * rowLongs;
+	final int n = (boardSize + 63) >>> 6;
+	long low = segment.get(base);
+	for (int w = 0; w < n; w++) {
+	    final long high = segment.get(base + w + 1);
+	    row[offset + w] = (low >>> 1) | (high << 63);
+	    low = high;
+	}
+	if ((boardSize & 63) != 0) {
+	    row[offset + n - 1] &= (1L << (boardSize & 63)) - 1L;
+	}
+    }
+
+    /**
+     * Count the live cells on the board, a word at a time.
+     *
+     * @return the number of live cells
+     */
+    @Override
+    public long getPopulation() {
+	final long[] row = work[0][0];
+	long population = 0L;
+	for (int r = 2; r < boardSize + 2; r++) {
+	    readRow(r, row);
+	    // leave out the border bits either side of the board
+	    row[0] &= ~1L;
+	    row[(boardSize + 1) >>> 6] &= ~(1L << (boardSize + 1));
+	    for (int w = 0; w < words; w++) {
+		population += Long.bitCount(row[w]);
+	    }
+	}
+	return population;
+    }
+
+    @Override
+    public PctRule getRule() {
+	return rule;
+    }
+
+    @Override
+    public void setRule(final PctRule nrule) {
+	rule = nrule.require(1, 2);
+    }
+
+    /**
+     * Run one step of the game.
+     *
+     * <p>The rows are split into chunks, and the rows just before and just
+     * after each chunk are saved. Then each chunk runs down its rows,
+     * keeping the current row and the ones either side in arrays on the
+     * heap, and writing each new row straight back over the old one, using
+     * the same bit-parallel adders as the bit engine. If the board wraps
+     * round, the border is refreshed from the opposite edges first, and
+     * only the rows of the board itself are computed.
+     */
+    @Override
+    public void step() {
+	if (wrapped) {
+	    refreshHalo();
+	    splitChunks(2, boardSize + 2);
+	} else {
+	    splitChunks(1, boardSize + 3);
+	}
+	bands.run(0, chunks, chunkBand);
+    }
+
+    private void splitChunks(final int from, final int to) {
+	chunks = Math.min(chunkStarts.length - 1, to - from);
+	for (int c = 0; c <= chunks; c++) {
+	    chunkStarts[c] = from + (int) ((long) (to - from) * c / chunks);
+	}
+	for (int c = 0; c < chunks; c++) {
+	    readRow(chunkStarts[c] - 1, above[c]);
+	    readRow(chunkStarts[c + 1], below[c]);
+	}
+    }
+
+    private void stepChunks(final int from, final int to) {
+	final PctRule nrule = rule;
+	for (int c = from; c < to; c++) {
+	    long[] up = work[c][0];
+	    long[] mid = work[c][1];
+	    long[] down = work[c][2];
+	    final int last = chunkStarts[c + 1] - 1;
+	    System.arraycopy(above[c], 0, up, 0, rowLongs);
+	    readRow(chunkStarts[c], mid);
+	    for (int r = chunkStarts[c]; r <= last; r++) {
+		if (r == last) {
+		    System.arraycopy(below[c], 0, down, 0, rowLongs);
+		} else {
+		    readRow(r + 1, down);
+		}
+		stepRow(nrule, up, mid, down, r);
+		final long[] t = up;
+		up = mid;
+		mid = down;
+		down = t;
+	    }
+	}
+    }
+
+    private void stepRow(final PctRule nrule, final long[] up,
+			 final long[] mid, final long[] down, final int r) {
+	final LongBuffer segment = segments[r / rowsPerSegment];
+	final int base = r % rowsPerSegment * rowLongs;
+	long uprev = 0L;
+	long mprev = 0L;
+	long dprev = 0L;
+	long u = up[0];
+	long m = mid[0];
+	long d = down[0];
+	for (int w = 0; w < words; w++) {
+	    final long unext = up[w + 1];
+	    final long mnext = mid[w + 1];
+	    final long dnext = down[w + 1];
+	    final long out = PctBitEngine.nextWord(nrule,
+			      u, (u << 1) | (uprev >>> 63),
+			      (u >>> 1) | (unext << 63),
+			      m, (m << 1) | (mprev >>> 63),
+			      (m >>> 1) | (mnext << 63),
+			      d, (d << 1) | (dprev >>> 63),
+			      (d >>> 1) | (dnext << 63));
+	    segment.put(base + w, w == words - 1 ? out & lastMask : out);
+	    uprev = u;
+	    mprev = m;
+	    dprev = d;
+	    u = unext;
+	    m = mnext;
+	    d = dnext;
+	}
+    }
+
+    private void readRow(final int r, final long[] row) {
+	final LongBuffer segment = segments[r / rowsPerSegment];
+	final int base = r % rowsPerSegment * rowLongs;
+	for (int w = 0; w < rowLongs; w++) {
+	    row[w] = segment.get(base + w);
+	}
+    }
+
+    private void writeRow(final int r, final long[] row) {
+	final LongBuffer segment = segments[r / rowsPerSegment];
+	final int base = r % rowsPerSegment * rowLongs;
+	for (int w = 0; w < rowLongs; w++) {
+	    segment.put(base + w, row[w]);
+	}
+    }
+
+    @Override
+    public boolean isWrapped() {
+	return wrapped;
+    }
+
+    @Override
+    public void setWrapped(final boolean nwrapped) {
+	if (wrapped && !nwrapped) {
+	    // the halo was only ever a copy of the opposite edges
+	    setBorder(false);
+	    final long[] dead = new long[rowLongs];
+	    writeRow(1, dead);
+	    writeRow(boardSize + 2, dead);
+	}
+	wrapped = nwrapped;
+    }
+
+    /*
+     * Set the border bits of each row of the board from the cells at the
+     * opposite end of the row, or clear them, then copy the edge rows,
+     * border bits included, into the opposite border rows.
+     */
+    private void refreshHalo() {
+	setBorder(true);
+	final long[] row = work[0][0];
+	readRow(boardSize + 1, row);
+	writeRow(1, row);
+	readRow(2, row);
+	writeRow(boardSize + 2, row);
+    }
+
+    private void setBorder(final boolean wrap) {
+	final int last = boardSize >>> 6;
+	final int after = (boardSize + 1) >>> 6;
+	final long afterBit = 1L << (boardSize + 1);
+	for (int r = 2; r < boardSize + 2; r++) {
+	    final LongBuffer segment = segments[r / rowsPerSegment];
+	    final int base = r % rowsPerSegment * rowLongs;
+	    // bit 0 is the border before cell 0, bit n the last cell
+	    final long before = wrap
+		? (segment.get(base + last) >>> boardSize) & 1L : 0L;
+	    final long w0 = (segment.get(base) & ~1L) | before;
+	    segment.put(base, w0);
+	    final long first = wrap ? (w0 >>> 1) & 1L : 0L;
+	    segment.put(base + after, (segment.get(base + after) & ~afterBit)
+			| (first << (boardSize + 1)));
+	}
+    }
+}
@@ -0,0 +1,488 @@
+/*
+ * SPDX-License-Identifier: CDDL-1.0
+ *
+ * CDDL HEADER START
+ *
+ * This file and its contents are supplied under the terms of the
+ * Common Development and Distribution License ("CDDL"), version 1.0.
+ * You may only use this file in accordance with the terms of version
+ * 1.0 of the CDDL.
+ *
+ * A full copy of the text of the CDDL should have accompanied this
+ * source. A copy of the CDDL is also available via the Internet at
+ * http://www.illumos.org/license/CDDL.
+ *
+ * CDDL HEADER END
+ *
+ * Copyright 2026 Peter Tribble
+ *
+ */
+
+package uk.co.petertribble.life;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * The options shared by the graphical and batch versions of pctlife, and
+ * the parsing of the command line flags that set them.
+ */
+public final class PctOptions {
+
+    /**
+     * The default size in cells of the life board. This is the visible size,
+     * there will always be an invisible 1-cell strip around the border.
+     */
+    private static final int DEF_BOARD_SIZE = 128;
+    /**
+     * The minimum size in cells of the life board. This is the visible size,
+     * there will always be an invisible 1-cell strip around the border.
+     */
+    private static final int MIN_BOARD_SIZE = 32;
+
+    /**
+     * The default size, in pixels, of each cell.
+     */
+    private static final int DEF_CELL_SIZE = 5;
+    /**
+     * The minimum size, in pixels, of each cell.
+     */
+    private static final int MIN_CELL_SIZE = 1;
+
+    /**
+     * The default gap between cells, in pixels.
+     */
+    private static final int DEF_CELL_GAP = 1;
+    /**
+     * The maximum gap between cells, in pixels.
+     */
+    private static final int MAX_CELL_GAP = 3;
+
+    /**
+     * The default density of cells, in other words the fraction of the board
+     * that will be covered by cells.
+     */
+    private static final double DEF_CELL_DENSITY = 0.15d;
+    /**
+     * The minimum initial cell density.
+     */
+    private static final double MIN_CELL_DENSITY = 0.01d;
+    /**
+     * The maximum initial cell density.
+     */
+    private static final double MAX_CELL_DENSITY = 0.99d;
+
+    /**
+     * The default interval between checkpoints, in seconds.
+     */
+    private static final int DEF_CHECKPOINT_INTERVAL = 300;
+
+    /**
+     * The size in cells of the life board.
+     */
+    private int boardSize = DEF_BOARD_SIZE;
+    /**
+     * The size, in pixels, of each cell.
+     */
+    private int cellSize = DEF_CELL_SIZE;
+    /**
+     * The gap between cells, in pixels.
+     */
+    private int cellGap = DEF_CELL_GAP;
+    /**
+     * The initial density of cells.
+     */
+    private double cellDensity = DEF_CELL_DENSITY;
+    /**
+     * The name of the engine used to compute each generation.
+     */
+    private String engineName = "int";
+    /**
+     * The rule used to compute each generation.
+     */
+    private PctRule rule = PctRule.CONWAY;
+    /**
+     * Whether the edges of the board wrap round.
+     */
+    private boolean wrapped;
+    /**
+     * The number of threads used to compute each generation.
+     */
+    private int threads = 1;
+    /**
+     * The step exponent for the hash engine; each step advances the board
+     * by 2^stepExponent generations.
+     */
+    private int stepExponent;
+    /**
+     * The maximum number of nodes the hash engine keeps between steps.
+     */
+    private int maxNodes = PctHashEngine.DEF_MAX_NODES;
+    /**
+     * Whether to paint the board by writing pixels into an image.
+     */
+    private boolean raster;
+    /**
+     * The file to save checkpoints to, or null if not checkpointing.
+     */
+    private File checkpointFile;
+    /**
+     * The interval between checkpoints, in seconds.
+     */
+    private int checkpointInterval = DEF_CHECKPOINT_INTERVAL;
+    /**
+     * The file to map the offheap engine's board into, or null to hold it
+     * in direct buffers.
+     */
+    private File mapFile;
+    /**
+     * What to do when the board settles into a cycle, or null to not look
+     * for cycles.
+     */
+    private String cycleAction;
+
+    /**
+     * Get the size in cells of the board.
+     *
+     * @return the board size
+     */
+    public int getBoardSize() {
+	return boardSize;
+    }
+
+    /**
+     * Get the size in pixels of each cell.
+     *
+     * @return the cell size
+     */
+    public int getCellSize() {
+	return cellSize;
+    }
+
+    /**
+     * Get the gap in pixels between cells.
+     *
+     * @return the cell gap
+     */
+    public int getCellGap() {
+	return cellGap;
+    }
+
+    /**
+     * Get the fraction of the board to be covered by a random pattern.
+     *
+     * @return the cell density
+     */
+    public double getCellDensity() {
+	return cellDensity;
+    }
+
+    /**
+     * Report whether the board should be painted by writing pixels into an
+     * image.
+     *
+     * @return true to paint using an image
+     */
+    public boolean isRaster() {
+	return raster;
+    }
+
+    /**
+     * Get the file to save checkpoints to.
+     *
+     * @return the checkpoint file, or null if checkpoints aren't wanted
+     */
+    public File getCheckpointFile() {
+	return checkpointFile;
+    }
+
+    /**
+     * Get the interval between checkpoints.
+     *
+     * @return the checkpoint interval in seconds
+     */
+    public int getCheckpointInterval() {
+	return checkpointInterval;
+    }
+
+    /**
+     * Get what to do when the board settles into a cycle.
+     *
+     * @return PctCycleDetector.REPORT, PAUSE, or RESTART, or null if not
+     * looking for cycles
+     */
+    public String getCycleAction() {
+	return cycleAction;
+    }
+
+    /**
+     * Create the engine chosen by the flags.
+     *
+     * @return a new engine
+     */
+    public PctEngine createEngine() {
+	if (mapFile != null && !"offheap".equals(engineName)) {
+	    bailOut("Only the offheap engine can use a mapped file!");
+	}
+	final PctEngine engine = newEngine();
+	try {
+	    engine.setRule(rule);
+	} catch (IllegalArgumentException iae) {
+	    bailOut(iae.getMessage() + "!");
+	}
+	if (wrapped) {
+	    try {
+		engine.setWrapped(true);
+	    } catch (UnsupportedOperationException uoe) {
+		bailOut("The " + engineName + " engine can't wrap round!");
+	    }
+	}
+	return engine;
+    }
+
+    private PctEngine newEngine() {
+	if ("sparse".equals(engineName)) {
+	    return new PctSparseEngine(boardSize);
+	}
+	if ("change".equals(engineName)) {
+	    return new PctChangeEngine(boardSize);
+	}
+	if ("hash".equals(engineName)) {
+	    final PctHashEngine hengine = new PctHashEngine(boardSize, maxNodes);
+	    hengine.setStepExponent(stepExponent);
+	    return hengine;
+	}
+	final PctBands bands = new PctBands(threads);
+	if ("bit".equals(engineName)) {
+	    return new PctBitEngine(boardSize, bands);
+	}
+	if ("tile".equals(engineName)) {
+	    return new PctTileEngine(boardSize, bands);
+	}
+	if ("ltl".equals(engineName)) {
+	    return new PctLtlEngine(boardSize, bands);
+	}
+	if ("gen".equals(engineName)) {
+	    return new PctGenEngine(boardSize, bands);
+	}
+	if ("block".equals(engineName)) {
+	    return new PctBlockEngine(boardSize, bands);
+	}
+	if ("offheap".equals(engineName)) {
+	    return newOffHeapEngine(bands);
+	}
+	if ("vector".equals(engineName)) {
+	    final PctVectorEngine vengine = new PctVectorEngine(boardSize,
+								 bands);
+	    if (!vengine.isVectorised()) {
+		System.err.println( // NOPMD
+		    "Vector API not available, using plain loops");
+	    }
+	    return vengine;
+	}
+	return new PctIntEngine(boardSize, bands);
+    }
+
+    private PctEngine newOffHeapEngine(final PctBands bands) {
+	if (mapFile == null) {
+	    return new PctOffHeapEngine(boardSize, bands);
+	}
+	try {
+	    return new PctOffHeapEngine(boardSize, bands, mapFile);
+	} catch (IOException ioe) {
+	    bailOut("Can't map " + mapFile + ": " + ioe.getMessage() + "!");
+	}
+	return null;
+    }
+
+    /**
+     * Parse the flag at the given position in the command line arguments.
+     * The supported flags are:
+     * -b The board size
+     * -g The gap between cells
+     * -s The size of each cell
+     * -d The initial cell density
+     * -e The engine: int (the default), bit, hash, tile, sparse, ltl,
+     *    gen, vector, offheap, block, or change
+     * -r The rule, as a rulestring such as B36/S23 (default B3/S23), a
+     *    Generations rule such as B2/S/C3, or a Larger than Life rule such
+     *    as R5,C0,M1,S34..58,B34..45,NM
+     * -t The number of threads used to compute each generation
+     * -k The hash engine advances 2^k generations each step
+     * -m The maximum number of nodes the hash engine keeps
+     * -w Wrap the edges of the board round, making it a torus
+     * -p Paint the board by writing pixels into an image
+     * -c A file to save a checkpoint of the board to periodically
+     * -a The interval between checkpoints, in seconds
+     * -f A file to map the offheap engine's board into
+     * -y Look for the board settling into a cycle, and then report it,
+     *    pause, or restart with a new random soup
+     *
+     * <p>If the flag is invalid, or has an invalid argument, a message is
+     * printed and the program exits.
+     *
+     * @param args command line arguments
+     * @param iarg the position of the flag to parse
+     *
+     * @return the position of the next argument, or iarg if the argument
+     * isn't one of the flags above
+     */
+    public int parseFlag(final String[] args, final int iarg) {
+	int i = iarg;
+	if ("-s".equals(args[i])) {
+	    ++i;
+	    cellSize = intArg(args, i, "cell size");
+	    if (cellSize < MIN_CELL_SIZE) {
+		bailOut("Cell size too small!");
+	    }
+	} else if ("-b".equals(args[i])) {
+	    ++i;
+	    boardSize = intArg(args, i, "board size");
+	    if (boardSize < MIN_BOARD_SIZE) {
+		bailOut("Board size too small!");
+	    }
+	} else if ("-g".equals(args[i])) {
+	    ++i;
+	    cellGap = intArg(args, i, "cell gap");
+	    if (cellGap < 0) {
+		bailOut("Cell gap too small!");
+	    }
+	    if (cellGap > MAX_CELL_GAP) {
+		bailOut("Cell gap too large!");
+	    }
+	} else if ("-d".equals(args[i])) {
+	    ++i;
+	    checkArg(args, i);
+	    try {
+		cellDensity = Double.parseDouble(args[i]);
+	    } catch (NumberFormatException ex) {
+		bailOut("Invalid cell density!");
+	    }
+	    if (cellDensity < MIN_CELL_DENSITY) {
+		bailOut("Cell density too small!");
+	    }
+	    if (cellDensity > MAX_CELL_DENSITY) {
+		bailOut("Cell density too large!");
+	    }
+	} else if ("-e".equals(args[i])) {
+	    ++i;
+	    checkArg(args, i);
+	    engineName = args[i];
+	    if (!"int".equals(engineName)
+		    && !"bit".equals(engineName)
+		    && !"hash".equals(engineName)
+		    && !"tile".equals(engineName)
+		    && !"sparse".equals(engineName)
+		    && !"ltl".equals(engineName)
+		    && !"gen".equals(engineName)
+		    && !"vector".equals(engineName)
+		    && !"offheap".equals(engineName)
+		    && !"block".equals(engineName)
+		    && !"change".equals(engineName)) {
+		bailOut("Unknown engine " + engineName + "!");
+	    }
+	} else if ("-r".equals(args[i])) {
+	    ++i;
+	    checkArg(args, i);
+	    try {
+		rule = PctRule.parse(args[i]);
+	    } catch (IllegalArgumentException iae) {
+		bailOut(iae.getMessage() + "!");
+	    }
+	} else if ("-t".equals(args[i])) {
+	    ++i;
+	    threads = intArg(args, i, "thread count");
+	    if (threads < 1) {
+		bailOut("Thread count too small!");
+	    }
+	} else if ("-k".equals(args[i])) {
+	    ++i;
+	    stepExponent = intArg(args, i, "step exponent");
+	    if (stepExponent < 0) {
+		bailOut("Step exponent too small!");
+	    }
+	    if (stepExponent > PctHashEngine.MAX_STEP_EXPONENT) {
+		bailOut("Step exponent too large!");
+	    }
+	} else if ("-m".equals(args[i])) {
+	    ++i;
+	    maxNodes = intArg(args, i, "node count");
+	    if (maxNodes < 1) {
+		bailOut("Node count too small!");
+	    }
+	} else if ("-w".equals(args[i])) {
+	    wrapped = true;
+	} else if ("-p".equals(args[i])) {
+	    raster = true;
+	} else if ("-c".equals(args[i])) {
+	    ++i;
+	    checkArg(args, i);
+	    checkpointFile = new File(args[i]);
+	} else if ("-a".equals(args[i])) {
+	    ++i;
+	    checkpointInterval = intArg(args, i, "checkpoint interval");
+	    if (checkpointInterval < 1) {
+		bailOut("Checkpoint interval too small!");
+	    }
+	} else if ("-f".equals(args[i])) {
+	    ++i;
+	    checkArg(args, i);
+	    mapFile = new File(args[i]);
+	} else if ("-y".equals(args[i])) {
+	    ++i;
+	    checkArg(args, i);
+	    cycleAction = args[i];
+	    if (!PctCycleDetector.REPORT.equals(cycleAction)
+		    && !PctCycleDetector.PAUSE.equals(cycleAction)
+		    && !PctCycleDetector.RESTART.equals(cycleAction)) {
+		bailOut("Unknown cycle action " + cycleAction + "!");
+	    }
+	} else {
+	    return iarg;
+	}
+	return i + 1;
+    }
+
+    /**
+     * Check there is an argument to the preceding flag, and bail out if
+     * there isn't.
+     *
+     * @param args command line arguments
+     * @param i the expected position of the argument
+     */
+    static void checkArg(final String[] args, final int i) {
+	if (i >= args.length) {
+	    bailOut("Expecting an argument to " + args[i - 1] + "!");
+	}
+    }
+
+    /**
+     * Parse the integer argument to the preceding flag, and bail out if
+     * there isn't one.
+     *
+     * @param args command line arguments
+     * @param i the expected position of the argument
+     * @param what a description of the argument
+     *
+     * @return the value of the argument
+     */
+    static int intArg(final String[] args, final int i, final String what) {
+	checkArg(args, i);
+	try {
+	    return Integer.parseInt(args[i]);
+	} catch (NumberFormatException ex) {
+	    bailOut("Invalid " + what + "!");
+	}
+	return 0;
+    }
+
+    /**
+     * Print a message and exit.
+     *
+     * @param msg the message to print
+     */
+    static void bailOut(final String msg) {
+	System.err.println(msg); // NOPMD
+	System.exit(1);
+    }
+}
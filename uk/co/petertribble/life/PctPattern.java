@@ -0,0 +1,432 @@
+/*
+ * SPDX-License-Identifier: CDDL-1.0
+ *
+ * CDDL HEADER START
+ *
+ * This file and its contents are supplied under the terms of the
+ * Common Development and Distribution License ("CDDL"), version 1.0.
+ * You may only use this file in accordance with the terms of version
+ * 1.0 of the CDDL.
+ *
+ * A full copy of the text of the CDDL should have accompanied this
+ * source. A copy of the CDDL is also available via the Internet at
+ * http://www.illumos.org/license/CDDL.
+ *
+ * CDDL HEADER END
+ *
+ * Copyright 2026 Peter Tribble
+ *
+ */
+
+package uk.co.petertribble.life;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.util.Random;
+
+/**
+ * Populate an engine with a random or saved pattern, and save the board to
+ * a file. None of this depends on Swing, so it's shared by the graphical
+ * and batch versions of pctlife.
+ */
+public final class PctPattern {
+
+    /** The longest line written when saving a pattern as RLE. */
+    private static final int RLE_LINE = 70;
+
+    private PctPattern() {
+    }
+
+    /**
+     * Populate the board with random data.
+     *
+     * @param engine the engine to populate
+     * @param cellDensity the fraction of the board to be covered by cells
+     */
+    public static void randomize(final PctEngine engine,
+				 final double cellDensity) {
+	randomize(engine, cellDensity, new Random());
+    }
+
+    /**
+     * Populate the board with random data from the given source, so that
+     * the same board can be generated again from the same seed.
+     *
+     * @param engine the engine to populate
+     * @param cellDensity the fraction of the board to be covered by cells
+     * @param random the source of random numbers
+     */
+    public static void randomize(final PctEngine engine,
+				 final double cellDensity, final Random random) {
+	final int boardSize = engine.getBoardSize();
+	engine.clear();
+	for (int i = 0; i < boardSize; i++) {
+	    for (int j = 0; j < boardSize; j++) {
+		if (random.nextDouble() < cellDensity) {
+		    engine.setAlive(i, j);
+		}
+	    }
+	}
+    }
+
+    /**
+     * Import a life pattern. Life 1.05, Life 1.06, and RLE files are
+     * supported, and the format is recognised from the content of the
+     * file. If there's a problem, return false and the board will be left
+     * in an indeterminate state.
+     *
+     * @param engine the engine to populate
+     * @param infile the File to read in
+     *
+     * @return false in the event of a problem
+     */
+    public static boolean load(final PctEngine engine, final File infile) {
+	engine.clear();
+	if (!infile.exists()) {
+	    return false;
+	}
+	try (PctPatternReader input = new PctPatternReader(infile)) {
+	    if (!input.nextLine()) {
+		return false;
+	    }
+	    String line = input.getLine();
+	    if (line.startsWith("#Life 1.06")) {
+		load106(engine, input);
+	    } else if (line.startsWith("#Life")) {
+		load105(engine, input);
+	    } else {
+		// an RLE file may have comments before its header line
+		while (line.startsWith("#") || line.trim().isEmpty()) {
+		    if (!input.nextLine()) {
+			return false;
+		    }
+		    line = input.getLine();
+		}
+		if (!line.trim().startsWith("x")) {
+		    return false;
+		}
+		loadRle(engine, input, line);
+	    }
+	} catch (IOException | IllegalArgumentException e) {
+	    return false;
+	}
+	return true;
+    }
+
+    /*
+     * Read the body of a Life 1.05 file. Each #P line starts a block of
+     * rows, at the given offset from the middle of the board, and runs of
+     * live cells are filled in one go. The x coordinate is moved along
+     * before each live cell is placed.
+     */
+    private static void load105(final PctEngine engine,
+				final PctPatternReader input)
+	    throws IOException {
+	final int boardMid = engine.getBoardSize() / 2;
+	int xblock = 0;
+	int y = 0;
+	while (input.nextLine()) {
+	    final byte[] bytes = input.getBytes();
+	    final int end = input.getEnd();
+	    int i = input.getStart();
+	    if (i < end && bytes[i] == '#') {
+		// #N is the normal rule, #R gives another; skip any others
+		final String line = input.getLine();
+		if (line.startsWith("#N")) {
+		    engine.setRule(PctRule.CONWAY);
+		} else if (line.startsWith("#R")) {
+		    engine.setRule(PctRule.parse(line.substring(2)));
+		} else if (line.startsWith("#P")) {
+		    final String[] ds = line.split("\\s+", 3);
+		    if (ds.length < 3) {
+			throw new IOException("Invalid #P line");
+		    }
+		    xblock = boardMid + Integer.parseInt(ds[1]);
+		    y = boardMid + Integer.parseInt(ds[2]);
+		}
+		continue;
+	    }
+	    int x = xblock;
+	    while (i < end) {
+		if (bytes[i] == '*') {
+		    final int first = i;
+		    do {
+			i++;
+		    } while (i < end && bytes[i] == '*');
+		    engine.setAliveRun(x + 1, y, i - first);
+		    x += i - first;
+		} else {
+		    if (bytes[i] == '.') {
+			x++;
+		    }
+		    i++;
+		}
+	    }
+	    // ready for the next line
+	    y++;
+	}
+    }
+
+    /*
+     * Read the body of a Life 1.06 file, which lists the coordinates of
+     * each live cell relative to the middle of the board.
+     */
+    private static void load106(final PctEngine engine,
+				final PctPatternReader input)
+	    throws IOException {
+	final int boardMid = engine.getBoardSize() / 2;
+	while (input.nextLine()) {
+	    final int c = input.skipBlanks();
+	    if (c >= 0 && c != '#') {
+		final int x = input.readInt();
+		final int y = input.readInt();
+		engine.setAlive(boardMid + x, boardMid + y);
+	    }
+	}
+    }
+
+    /*
+     * Read the body of an RLE file, given its header line. The pattern is
+     * centred on the board, and each run of live cells is filled in one go.
+     * A rule in the header replaces the rule of the engine. The letters of
+     * multi-state files give the dying states of Generations rules; under
+     * other rules any state but dead is alive.
+     */
+    private static void loadRle(final PctEngine engine,
+				final PctPatternReader input,
+				final String header) throws IOException {
+	int width = 0;
+	int height = 0;
+	int start = 0;
+	while (start < header.length()) {
+	    int comma = header.indexOf(',', start);
+	    if (comma < 0) {
+		comma = header.length();
+	    }
+	    final String[] kv = header.substring(start, comma).split("=", 2);
+	    if (kv.length == 2) {
+		final String key = kv[0].trim();
+		if ("x".equals(key)) {
+		    width = Integer.parseInt(kv[1].trim());
+		} else if ("y".equals(key)) {
+		    height = Integer.parseInt(kv[1].trim());
+		} else if ("rule".equals(key)) {
+		    // the rule runs to the end of the line, as a Larger than
+		    // Life rule has commas of its own
+		    engine.setRule(PctRule.parse(
+			header.substring(header.indexOf('=', start) + 1)));
+		    break;
+		}
+	    }
+	    start = comma + 1;
+	}
+	final int boardMid = engine.getBoardSize() / 2;
+	final int xstart = boardMid - width / 2;
+	int x = xstart;
+	int y = boardMid - height / 2;
+	int run = 0;
+	while (input.nextLine()) {
+	    final byte[] bytes = input.getBytes();
+	    final int end = input.getEnd();
+	    int i = input.getStart();
+	    if (i < end && bytes[i] == '#') {
+		continue;
+	    }
+	    while (i < end) {
+		final int c = bytes[i++];
+		if (c >= '0' && c <= '9') {
+		    if (run > (Integer.MAX_VALUE - 9) / 10) {
+			throw new IOException("Run count out of range");
+		    }
+		    run = run * 10 + c - '0';
+		} else if (c != ' ' && c != '\t') {
+		    final int n = run == 0 ? 1 : run;
+		    run = 0;
+		    if (c == 'b' || c == '.') {
+			x += n;
+		    } else if (c == '$') {
+			x = xstart;
+			y += n;
+		    } else if (c == '!') {
+			return;
+		    } else if (c == 'o') {
+			engine.setAliveRun(x, y, n);
+			x += n;
+		    } else if (c >= 'A' && c <= 'X'
+			       || c >= 'p' && c <= 'y') {
+			int state = c - 'A' + 1;
+			if (c >= 'p') {
+			    // a prefix, each worth 24 states, then a letter
+			    if (i == end || bytes[i] < 'A' || bytes[i] > 'X') {
+				throw new IOException("Invalid RLE data");
+			    }
+			    state = (c - 'p' + 1) * 24 + bytes[i++] - 'A' + 1;
+			}
+			final int states = engine.getRule().getStates();
+			if (states == 2 || state == 1) {
+			    // any state other than dead is treated as alive
+			    engine.setAliveRun(x, y, n);
+			} else if (state < states) {
+			    for (int k = 0; k < n; k++) {
+				engine.setState(x + k, y, state);
+			    }
+			} else {
+			    throw new IOException("Invalid RLE state");
+			}
+			x += n;
+		    } else {
+			throw new IOException("Invalid RLE data");
+		    }
+		}
+	    }
+	}
+    }
+
+    /**
+     * Save the visible board as a Life 1.05 pattern, in a form that load()
+     * will read back to the same place on a board of the same size. Under
+     * rules with more than 2 states, Life 1.05 can only hold the live
+     * cells, so the board is saved as RLE instead, with the dying states
+     * as letters.
+     *
+     * @param engine the engine holding the board to save
+     * @param outfile the File to write
+     *
+     * @throws IOException if the file cannot be written
+     */
+    public static void save(final PctEngine engine, final File outfile)
+	    throws IOException {
+	if (engine.getRule().getStates() > 2) {
+	    saveRle(engine, outfile);
+	    return;
+	}
+	final int boardSize = engine.getBoardSize();
+	final int boardMid = boardSize / 2;
+	int xmin = boardSize;
+	int xmax = -1;
+	int ymin = boardSize;
+	int ymax = -1;
+	for (int i = 0; i < boardSize; i++) {
+	    for (int j = 0; j < boardSize; j++) {
+		if (engine.isAlive(i, j)) {
+		    xmin = Math.min(xmin, i);
+		    xmax = Math.max(xmax, i);
+		    ymin = Math.min(ymin, j);
+		    ymax = Math.max(ymax, j);
+		}
+	    }
+	}
+	try (PrintWriter output = new PrintWriter(
+			Files.newBufferedWriter(outfile.toPath()))) {
+	    output.println("#Life 1.05");
+	    if (PctRule.CONWAY.equals(engine.getRule())) {
+		output.println("#N");
+	    } else {
+		output.println("#R " + engine.getRule().toLife105());
+	    }
+	    if (xmax >= 0) {
+		// load() moves along before placing each live cell
+		output.println("#P " + (xmin - 1 - boardMid) + " "
+			       + (ymin - boardMid));
+		final StringBuilder sb = new StringBuilder();
+		for (int j = ymin; j <= ymax; j++) {
+		    sb.setLength(0);
+		    int len = 1;
+		    for (int i = xmin; i <= xmax; i++) {
+			if (engine.isAlive(i, j)) {
+			    sb.append('*');
+			    len = sb.length();
+			} else {
+			    sb.append('.');
+			}
+		    }
+		    sb.setLength(len);
+		    output.println(sb);
+		}
+	    }
+	    if (output.checkError()) {
+		throw new IOException("Error writing " + outfile);
+	    }
+	}
+    }
+
+    /*
+     * Save the visible board as RLE, with the state of each cell. The
+     * pattern covers the whole board, so that load() centres it back in
+     * the same place, but runs of dead cells cost a few characters, and
+     * the dead cells at the end of each row and the blank rows at the end
+     * of the board are left off.
+     */
+    private static void saveRle(final PctEngine engine, final File outfile)
+	    throws IOException {
+	final int boardSize = engine.getBoardSize();
+	try (PrintWriter output = new PrintWriter(
+			Files.newBufferedWriter(outfile.toPath()))) {
+	    output.println("x = " + boardSize + ", y = " + boardSize
+			   + ", rule = " + engine.getRule());
+	    final StringBuilder line = new StringBuilder();
+	    // the ends of rows not yet written, as they may end the pattern
+	    int pendingRows = 0;
+	    for (int j = 0; j < boardSize; j++) {
+		int state = 0;
+		int run = 0;
+		for (int i = 0; i <= boardSize; i++) {
+		    final int next = i < boardSize ? engine.getState(i, j)
+			: -1;
+		    if (next == state) {
+			run++;
+			continue;
+		    }
+		    // the dead run at the end of a row is left off
+		    if (run > 0 && (state != 0 || next >= 0)) {
+			if (pendingRows > 0) {
+			    appendRle(output, line, pendingRows, "$");
+			    pendingRows = 0;
+			}
+			appendRle(output, line, run, rleState(state));
+		    }
+		    state = next;
+		    run = 1;
+		}
+		pendingRows++;
+	    }
+	    line.append('!');
+	    output.println(line);
+	    if (output.checkError()) {
+		throw new IOException("Error writing " + outfile);
+	    }
+	}
+    }
+
+    /*
+     * The RLE letters for a state, as read by loadRle(): b for dead, and A
+     * to X for states 1 to 24, with a prefix from p to y for each further
+     * 24 states.
+     */
+    private static String rleState(final int state) {
+	if (state == 0) {
+	    return "b";
+	}
+	final int prefix = (state - 1) / 24;
+	final char letter = (char) ('A' + (state - 1) % 24);
+	return prefix == 0 ? String.valueOf(letter)
+	    : "" + (char) ('p' + prefix - 1) + letter;
+    }
+
+    /*
+     * Add a run of an RLE item to the line, writing the line out first if
+     * it would grow beyond the usual 70 characters.
+     */
+    private static void appendRle(final PrintWriter output,
+				  final StringBuilder line, final int run,
+				  final String item) {
+	final String text = run == 1 ? item : run + item;
+	if (line.length() + text.length() > RLE_LINE) {
+	    output.println(line);
+	    line.setLength(0);
+	}
+	line.append(text);
+    }
+}
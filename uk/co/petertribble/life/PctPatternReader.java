@@ -0,0 +1,240 @@
+/*
+ * SPDX-License-Identifier: CDDL-1.0
+ *
+ * CDDL HEADER START
+ *
+ * This file and its contents are supplied under the terms of the
+ * Common Development and Distribution License ("CDDL"), version 1.0.
+ * You may only use this file in accordance with the terms of version
+ * 1.0 of the CDDL.
+ *
+ * A full copy of the text of the CDDL should have accompanied this
+ * source. A copy of the CDDL is also available via the Internet at
+ * http://www.illumos.org/license/CDDL.
+ *
+ * CDDL HEADER END
+ *
+ * Copyright 2026 Peter Tribble
+ *
+ */
+
+package uk.co.petertribble.life;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Read a pattern file a line at a time, through a large buffer. Lines are
+ * not copied out of the buffer; the parsers in PctPattern scan the bytes
+ * of each line in place, so loading time depends on the size of the file
+ * rather than creating a String for every line.
+ */
+final class PctPatternReader implements Closeable {
+
+    /**
+     * The initial size of the read buffer, in bytes.
+     */
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    /**
+     * The channel the file is read from.
+     */
+    private final FileChannel channel;
+    /**
+     * The bytes read from the file, which grows if a line doesn't fit.
+     */
+    private byte[] bytes = new byte[BUFFER_SIZE];
+    /**
+     * The number of valid bytes in the buffer.
+     */
+    private int limit;
+    /**
+     * Whether the end of the file has been read.
+     */
+    private boolean eof;
+    /**
+     * The start of the current line.
+     */
+    private int start;
+    /**
+     * The end of the current line, excluding the line terminator.
+     */
+    private int end;
+    /**
+     * The start of the next line.
+     */
+    private int next;
+    /**
+     * The position in the current line reached by readInt().
+     */
+    private int cursor;
+
+    /**
+     * Open the given file for reading.
+     *
+     * @param infile the file to read
+     *
+     * @throws IOException if the file cannot be opened
+     */
+    PctPatternReader(final File infile) throws IOException {
+	channel = FileChannel.open(infile.toPath(), StandardOpenOption.READ);
+    }
+
+    /**
+     * Move on to the next line.
+     *
+     * @return false at the end of the file
+     *
+     * @throws IOException if the file cannot be read
+     */
+    boolean nextLine() throws IOException {
+	start = next;
+	int i = start;
+	while (true) {
+	    while (i < limit && bytes[i] != '\n') {
+		i++;
+	    }
+	    if (i < limit) {
+		end = i;
+		next = i + 1;
+		break;
+	    }
+	    if (eof) {
+		if (start == limit) {
+		    return false;
+		}
+		end = limit;
+		next = limit;
+		break;
+	    }
+	    i -= start;
+	    fill();
+	    i += start;
+	}
+	if (end > start && bytes[end - 1] == '\r') {
+	    end--;
+	}
+	cursor = start;
+	return true;
+    }
+
+    /*
+     * Move the current line to the start of the buffer, growing it if the
+     * line fills it, and read as much more of the file as will fit.
+     */
+    private void fill() throws IOException {
+	final int len = limit - start;
+	if (start == 0 && limit == bytes.length) {
+	    bytes = Arrays.copyOf(bytes, 2 * bytes.length);
+	} else {
+	    System.arraycopy(bytes, start, bytes, 0, len);
+	}
+	start = 0;
+	limit = len;
+	final ByteBuffer buffer = ByteBuffer.wrap(bytes, limit,
+					bytes.length - limit);
+	int n;
+	do {
+	    n = channel.read(buffer);
+	} while (n == 0);
+	if (n < 0) {
+	    eof = true;
+	} else {
+	    limit += n;
+	}
+    }
+
+    /**
+     * Get the buffer holding the current line. The buffer may change when
+     * the next line is read.
+     *
+     * @return the buffer
+     */
+    byte[] getBytes() {
+	return bytes;
+    }
+
+    /**
+     * Get the position of the start of the current line in the buffer.
+     *
+     * @return the start of the line
+     */
+    int getStart() {
+	return start;
+    }
+
+    /**
+     * Get the position of the end of the current line in the buffer,
+     * excluding the line terminator.
+     *
+     * @return the end of the line
+     */
+    int getEnd() {
+	return end;
+    }
+
+    /**
+     * Get the current line as a String. This is intended for headers and
+     * comments, which are short.
+     *
+     * @return the current line
+     */
+    String getLine() {
+	return new String(bytes, start, end - start,
+			StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Skip any spaces and tabs in the current line.
+     *
+     * @return the next byte in the line, or -1 at the end of the line
+     */
+    int skipBlanks() {
+	while (cursor < end
+	       && (bytes[cursor] == ' ' || bytes[cursor] == '\t')) {
+	    cursor++;
+	}
+	return cursor < end ? bytes[cursor] : -1;
+    }
+
+    /**
+     * Read an optionally signed decimal integer from the current line,
+     * after skipping any spaces and tabs.
+     *
+     * @return the integer read
+     *
+     * @throws IOException if there is no integer to read
+     */
+    int readInt() throws IOException {
+	int c = skipBlanks();
+	int i = cursor;
+	final boolean negative = c == '-';
+	if (c == '-' || c == '+') {
+	    i++;
+	}
+	if (i == end || bytes[i] < '0' || bytes[i] > '9') {
+	    throw new IOException("Expected a number");
+	}
+	long value = 0L;
+	while (i < end && bytes[i] >= '0' && bytes[i] <= '9') {
+	    value = value * 10 + bytes[i] - '0';
+	    if (value > Integer.MAX_VALUE) {
+		throw new IOException("Number out of range");
+	    }
+	    i++;
+	}
+	cursor = i;
+	return (int) (negative ? -value : value);
+    }
+
+    @Override
+    public void close() throws IOException {
+	channel.close();
+    }
+}
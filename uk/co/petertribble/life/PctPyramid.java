@@ -0,0 +1,134 @@
+/*
+ * SPDX-License-Identifier: CDDL-1.0
+ *
+ * CDDL HEADER START
+ *
+ * This file and its contents are supplied under the terms of the
+ * Common Development and Distribution License ("CDDL"), version 1.0.
+ * You may only use this file in accordance with the terms of version
+ * 1.0 of the CDDL.
+ *
+ * A full copy of the text of the CDDL should have accompanied this
+ * source. A copy of the CDDL is also available via the Internet at
+ * http://www.illumos.org/license/CDDL.
+ *
+ * CDDL HEADER END
+ *
+ * Copyright 2026 Peter Tribble
+ *
+ */
+
+package uk.co.petertribble.life;
+
+/**
+ * The number of live cells in square tiles of a snapshot, at a series of
+ * levels, each with tiles twice the size of the level below, so that a
+ * board much larger than the screen can be shaded by how busy each part
+ * of it is. The smallest tiles are 16 cells square, so that each word of
+ * a snapshot covers 4 of them, and the top level has a single tile.
+ *
+ * <p>It's built once from a snapshot, and then kept up to date with each
+ * word of cells that changes in the snapshots that follow, so the cost of
+ * keeping it follows the number of changes rather than the size of the
+ * board.
+ */
+final class PctPyramid {
+
+    /** The number of bits in the size of the smallest tiles. */
+    static final int BASE_BITS = 4;
+    /** The size in cells of the smallest tiles. */
+    static final int BASE_SIZE = 1 << BASE_BITS;
+    /** The mask for the cells of a word in one of the smallest tiles. */
+    private static final long SLICE = (1L << BASE_SIZE) - 1;
+
+    /** The size in cells of the board. */
+    private final int boardSize;
+    /** The number of tiles along each side at each level. */
+    private final int[] tiles;
+    /** The number of live cells in each tile at each level, by row. */
+    private final int[][] counts;
+
+    /**
+     * Create a pyramid for a board of the given size, with every tile
+     * empty.
+     *
+     * @param nboardSize the size of the board
+     */
+    PctPyramid(final int nboardSize) {
+	boardSize = nboardSize;
+	int levels = 1;
+	while ((BASE_SIZE << (levels - 1)) < boardSize) {
+	    levels++;
+	}
+	tiles = new int[levels];
+	counts = new int[levels][];
+	for (int level = 0; level < levels; level++) {
+	    final int size = BASE_SIZE << level;
+	    tiles[level] = (boardSize + size - 1) / size;
+	    counts[level] = new int[tiles[level] * tiles[level]];
+	}
+    }
+
+    /**
+     * Count the live cells of a snapshot into the pyramid, which must be
+     * empty.
+     *
+     * @param snapshot the snapshot to count
+     */
+    void fill(final PctSnapshot snapshot) {
+	for (int x = 0; x < boardSize; x++) {
+	    for (int w = 0; w < snapshot.getWords(); w++) {
+		update(x, w, 0L, snapshot.getWord(x, w));
+	    }
+	}
+    }
+
+    /**
+     * Adjust the counts for a word of cells that changed.
+     *
+     * @param x the x coordinate of the row the word is in
+     * @param w the index of the word in the row
+     * @param before the word as it was
+     * @param after the word as it is now
+     */
+    void update(final int x, final int w, final long before,
+		final long after) {
+	if (before == after) {
+	    return;
+	}
+	for (int k = 0; k < 64; k += BASE_SIZE) {
+	    final int delta = Long.bitCount((after >>> k) & SLICE)
+		- Long.bitCount((before >>> k) & SLICE);
+	    if (delta != 0) {
+		final int y = w * 64 + k;
+		for (int level = 0; level < tiles.length; level++) {
+		    final int bits = BASE_BITS + level;
+		    counts[level][(x >> bits) * tiles[level] + (y >> bits)]
+			+= delta;
+		}
+	    }
+	}
+    }
+
+    /**
+     * Get the number of levels, the top one having a single tile.
+     *
+     * @return the number of levels
+     */
+    int getLevels() {
+	return tiles.length;
+    }
+
+    /**
+     * Get the number of live cells in a tile.
+     *
+     * @param level the level of the tile
+     * @param tx the x coordinate of the tile at that level
+     * @param ty the y coordinate of the tile at that level
+     *
+     * @return the number of live cells in the tile
+     */
+    int getCount(final int level, final int tx, final int ty) {
+	return counts[level][tx * tiles[level] + ty];
+    }
+}
@@ -0,0 +1,494 @@
+/*
+ * SPDX-License-Identifier: CDDL-1.0
+ *
+ * CDDL HEADER START
+ *
+ * This file and its contents are supplied under the terms of the
+ * Common Development and Distribution License ("CDDL"), version 1.0.
+ * You may only use this file in accordance with the terms of version
+ * 1.0 of the CDDL.
+ *
+ * A full copy of the text of the CDDL should have accompanied this
+ * source. A copy of the CDDL is also available via the Internet at
+ * http://www.illumos.org/license/CDDL.
+ *
+ * CDDL HEADER END
+ *
+ * Copyright 2026 Peter Tribble
+ *
+ */
+
+package uk.co.petertribble.life;
+
+import java.util.BitSet;
+import java.util.Locale;
+
+/**
+ * A rule for a Life-like cellular automaton, giving the numbers of live
+ * neighbours for which a dead cell is born and a live cell survives. Rules
+ * are written as rulestrings such as B3/S23 for Conway's Life, B36/S23 for
+ * HighLife, or the older survival/birth form 23/3.
+ *
+ * <p>Generations rules add states that a live cell passes through as it
+ * dies, written with the number of states after the B/S form, such as
+ * B2/S/C3 for Brian's Brain, or after the survival/birth form, as in
+ * 345/2/4 for Star Wars. A live cell that doesn't survive moves to state
+ * 2, and from there one state on each generation until it reaches the
+ * last and then dies. Only live cells count as neighbours, and only cells
+ * that are dead can be born. Only the gen engine can run rules with more
+ * than 2 states.
+ *
+ * <p>Larger than Life rules count the live cells in a square of radius r
+ * around each cell, rather than just the 8 nearest neighbours. They're
+ * written in the form R5,C0,M1,S34..58,B34..45,NM (Bosco's rule), giving
+ * the range, the number of states, whether the count includes the cell
+ * itself, the survival and birth ranges, and the neighbourhood. Only the
+ * ltl engine can run rules with a range greater than 1.
+ *
+ * <p>A rule is compiled into tables, so that engines can apply any rule
+ * without testing which rule it is. Engines that count the neighbours of
+ * each cell look up the next state by the current state and the count;
+ * engines that count the neighbours of 64 cells at once in bit planes
+ * select the next state with a fixed tree of bitwise operations on
+ * constant masks.
+ *
+ * <p>Rules under which a dead cell with no live neighbours is born aren't
+ * supported, as the universe outside the board would come to life.
+ */
+public final class PctRule {
+
+    /**
+     * The largest range supported for Larger than Life rules.
+     */
+    public static final int MAX_RANGE = 100;
+
+    /**
+     * The largest number of states supported for Generations rules, as
+     * many as fit in a byte.
+     */
+    public static final int MAX_STATES = 256;
+
+    /**
+     * Conway's Life, B3/S23.
+     */
+    public static final PctRule CONWAY = parse("B3/S23");
+
+    /**
+     * The range of the neighbourhood, 1 for Life-like rules.
+     */
+    private final int range;
+    /**
+     * The number of states, 2 for rules with only live and dead cells.
+     */
+    private final int states;
+    /**
+     * Whether the rulestring counts the cell itself, as the M1 of a Larger
+     * than Life rule. The counts held here never include the cell itself,
+     * so this is only needed to write the rulestring back out.
+     */
+    private final boolean middle;
+    /**
+     * The number of possible neighbour counts, (2r+1)^2, 9 for Life-like
+     * rules.
+     */
+    private final int counts;
+    /**
+     * The neighbour counts for which a dead cell is born.
+     */
+    private final BitSet born;
+    /**
+     * The neighbour counts for which a live cell survives.
+     */
+    private final BitSet survive;
+    /**
+     * The next state, indexed by the current state times the number of
+     * possible counts, plus the neighbour count. Cells that are dying move
+     * on to the next state whatever the count.
+     */
+    private final int[] table;
+    /**
+     * For counts 0 to 7, the next state of each cell when the low bit of
+     * the count is 0, as a mask of all zeros or all ones, indexed by the
+     * state, the fours bit, and the twos bit.
+     */
+    private final long[] even = new long[8];
+    /**
+     * The difference between the next states when the low bit of the count
+     * is 1 and when it is 0, indexed the same way as even.
+     */
+    private final long[] odd = new long[8];
+    /**
+     * The next state of a dead cell with 8 neighbours, as a mask.
+     */
+    private final long born8;
+    /**
+     * The difference between the next states of live and dead cells with 8
+     * neighbours, as a mask.
+     */
+    private final long diff8;
+
+    private PctRule(final int nrange, final int nstates,
+		    final boolean nmiddle, final BitSet nborn,
+		    final BitSet nsurvive) {
+	range = nrange;
+	states = nstates;
+	middle = nmiddle;
+	counts = (2 * range + 1) * (2 * range + 1);
+	born = nborn;
+	survive = nsurvive;
+	table = new int[states * counts];
+	for (int count = 0; count < counts; count++) {
+	    table[count] = born.get(count) ? 1 : 0;
+	    table[counts + count] = survive.get(count) ? 1 : 2 % states;
+	    for (int state = 2; state < states; state++) {
+		table[state * counts + count] = (state + 1) % states;
+	    }
+	}
+	if (range == 1 && states == 2) {
+	    for (int i = 0; i < 8; i++) {
+		// i is the state, then the fours and twos bits of the count
+		final int state = i >> 2;
+		final int count = (i & 3) << 1;
+		even[i] = -(long) next(state, count);
+		odd[i] = even[i] ^ -(long) next(state, count + 1);
+	    }
+	    born8 = -(long) next(0, 8);
+	    diff8 = born8 ^ -(long) next(1, 8);
+	} else {
+	    born8 = 0L;
+	    diff8 = 0L;
+	}
+    }
+
+    /**
+     * Parse a rulestring. The B/S form, in either order and either case,
+     * the survival/birth form of Life 1.05 files, either of them followed
+     * by the number of states of a Generations rule, and the Larger than
+     * Life form are accepted.
+     *
+     * @param rulestring the rulestring to parse
+     *
+     * @return the rule
+     *
+     * @throws IllegalArgumentException if the rulestring is invalid or the
+     * rule isn't supported
+     */
+    public static PctRule parse(final String rulestring) {
+	final String rs = rulestring.trim().toUpperCase(Locale.ROOT);
+	if (rs.length() > 1 && rs.charAt(0) == 'R'
+		&& Character.isDigit(rs.charAt(1))) {
+	    return parseLtl(rs, rulestring);
+	}
+	final String[] parts = rs.split("/", -1);
+	if (parts.length != 2 && parts.length != 3) {
+	    throw new IllegalArgumentException("Invalid rule " + rulestring);
+	}
+	int nstates = 2;
+	if (parts.length == 3) {
+	    nstates = number(parts[2].startsWith("C") ? parts[2].substring(1)
+			     : parts[2], rulestring);
+	    if (nstates < 2 || nstates > MAX_STATES) {
+		throw new IllegalArgumentException("Unsupported rule "
+		    + rulestring + ", the states must be from 2 to "
+		    + MAX_STATES);
+	    }
+	}
+	final String b;
+	final String s;
+	if (parts[0].startsWith("B") && parts[1].startsWith("S")) {
+	    b = parts[0].substring(1);
+	    s = parts[1].substring(1);
+	} else if (parts[0].startsWith("S") && parts[1].startsWith("B")) {
+	    s = parts[0].substring(1);
+	    b = parts[1].substring(1);
+	} else {
+	    s = parts[0];
+	    b = parts[1];
+	}
+	return create(1, nstates, false, digits(b, rulestring),
+		      digits(s, rulestring), rulestring);
+    }
+
+    /*
+     * Parse a Larger than Life rulestring, such as R5,C0,M1,S34..58,B34..45,NM.
+     * The states, middle, and neighbourhood parts are optional.
+     */
+    private static PctRule parseLtl(final String rs, final String rulestring) {
+	int nrange = 0;
+	boolean nmiddle = false;
+	BitSet nborn = null;
+	BitSet nsurvive = null;
+	for (final String part : rs.split(",", -1)) {
+	    if (part.isEmpty()) {
+		throw new IllegalArgumentException("Invalid rule "
+						   + rulestring);
+	    }
+	    final String value = part.substring(1);
+	    switch (part.charAt(0)) {
+	    case 'R':
+		nrange = number(value, rulestring);
+		if (nrange < 1 || nrange > MAX_RANGE) {
+		    throw new IllegalArgumentException("Unsupported rule "
+			+ rulestring + ", the range must be from 1 to "
+			+ MAX_RANGE);
+		}
+		break;
+	    case 'C':
+		if (number(value, rulestring) > 2) {
+		    throw new IllegalArgumentException("Unsupported rule "
+			+ rulestring + ", only 2 states are supported");
+		}
+		break;
+	    case 'M':
+		if (!"0".equals(value) && !"1".equals(value)) {
+		    throw new IllegalArgumentException("Invalid rule "
+						       + rulestring);
+		}
+		nmiddle = "1".equals(value);
+		break;
+	    case 'S':
+		nsurvive = interval(value, rulestring);
+		break;
+	    case 'B':
+		nborn = interval(value, rulestring);
+		break;
+	    case 'N':
+		if (!"M".equals(value)) {
+		    throw new IllegalArgumentException("Unsupported rule "
+			+ rulestring + ", only the Moore neighbourhood "
+			+ "is supported");
+		}
+		break;
+	    default:
+		throw new IllegalArgumentException("Invalid rule "
+						   + rulestring);
+	    }
+	}
+	if (nrange == 0 || nborn == null || nsurvive == null) {
+	    throw new IllegalArgumentException("Invalid rule " + rulestring);
+	}
+	// a live cell counts itself under M1, which we never do
+	return create(nrange, 2, nmiddle, nborn,
+		      nmiddle ? nsurvive.get(1, nsurvive.length()) : nsurvive,
+		      rulestring);
+    }
+
+    private static PctRule create(final int nrange, final int nstates,
+		final boolean nmiddle, final BitSet nborn,
+		final BitSet nsurvive, final String rulestring) {
+	if (nborn.get(0)) {
+	    throw new IllegalArgumentException("Unsupported rule " + rulestring
+		+ ", cells can't be born with no neighbours");
+	}
+	final int ncounts = (2 * nrange + 1) * (2 * nrange + 1);
+	if (nborn.length() > ncounts || nsurvive.length() > ncounts) {
+	    throw new IllegalArgumentException("Invalid rule " + rulestring);
+	}
+	return new PctRule(nrange, nstates, nmiddle, nborn, nsurvive);
+    }
+
+    private static BitSet digits(final String digits,
+				 final String rulestring) {
+	final BitSet set = new BitSet();
+	for (int i = 0; i < digits.length(); i++) {
+	    final char c = digits.charAt(i);
+	    if (c < '0' || c > '8') {
+		throw new IllegalArgumentException("Invalid rule "
+						   + rulestring);
+	    }
+	    set.set(c - '0');
+	}
+	return set;
+    }
+
+    private static BitSet interval(final String value,
+				   final String rulestring) {
+	final int dots = value.indexOf("..");
+	final int from = number(dots < 0 ? value : value.substring(0, dots),
+				rulestring);
+	final int to = dots < 0 ? from : number(value.substring(dots + 2),
+						rulestring);
+	final BitSet set = new BitSet();
+	if (to >= from) {
+	    set.set(from, to + 1);
+	}
+	return set;
+    }
+
+    private static int number(final String value, final String rulestring) {
+	if (value.isEmpty() || value.length() > 6) {
+	    throw new IllegalArgumentException("Invalid rule " + rulestring);
+	}
+	for (int i = 0; i < value.length(); i++) {
+	    if (!Character.isDigit(value.charAt(i))) {
+		throw new IllegalArgumentException("Invalid rule "
+						   + rulestring);
+	    }
+	}
+	return Integer.parseInt(value);
+    }
+
+    /**
+     * Get the range of the neighbourhood, the distance from a cell to the
+     * furthest neighbour it counts.
+     *
+     * @return the range, 1 for Life-like rules
+     */
+    public int getRange() {
+	return range;
+    }
+
+    /**
+     * Get the number of states a cell can be in.
+     *
+     * @return the number of states, 2 for rules without dying states
+     */
+    public int getStates() {
+	return states;
+    }
+
+    /**
+     * Check that an engine can run this rule.
+     *
+     * @param maxRange the largest range the engine supports
+     * @param maxStates the largest number of states the engine supports
+     *
+     * @return this rule
+     *
+     * @throws IllegalArgumentException if the rule has a larger range or
+     * more states
+     */
+    PctRule require(final int maxRange, final int maxStates) {
+	if (range > maxRange) {
+	    throw new IllegalArgumentException("Rule " + this
+					       + " needs the ltl engine");
+	}
+	if (states > maxStates) {
+	    throw new IllegalArgumentException("Rule " + this
+					       + " needs the gen engine");
+	}
+	return this;
+    }
+
+    /**
+     * Get the next state of a cell.
+     *
+     * @param state 1 if the cell is alive, 0 if it's dead, or for
+     * Generations rules the dying state
+     * @param count the number of live neighbours
+     *
+     * @return the next state of the cell
+     */
+    public int next(final int state, final int count) {
+	return table[state * counts + count];
+    }
+
+    /**
+     * Get the next state of 64 cells at once, given their neighbour
+     * counts in bit planes, so that the count for each cell is s0 + 2*s1
+     * + 4*s2 + 8*s3. Each level of the tree picks between two values
+     * with one bit plane, with the constant masks for this rule at the
+     * leaves.
+     *
+     * @param m the current states
+     * @param s0 the ones bits of the counts
+     * @param s1 the twos bits of the counts
+     * @param s2 the fours bits of the counts
+     * @param s3 the eights bits of the counts
+     *
+     * @return the next states
+     */
+    long nextBits(final long m, final long s0, final long s1, final long s2,
+		  final long s3) {
+	final long a0 = even[0] ^ (odd[0] & s0);
+	final long a1 = even[1] ^ (odd[1] & s0);
+	final long a2 = even[2] ^ (odd[2] & s0);
+	final long a3 = even[3] ^ (odd[3] & s0);
+	final long a4 = even[4] ^ (odd[4] & s0);
+	final long a5 = even[5] ^ (odd[5] & s0);
+	final long a6 = even[6] ^ (odd[6] & s0);
+	final long a7 = even[7] ^ (odd[7] & s0);
+	final long b0 = a0 ^ ((a0 ^ a1) & s1);
+	final long b1 = a2 ^ ((a2 ^ a3) & s1);
+	final long b2 = a4 ^ ((a4 ^ a5) & s1);
+	final long b3 = a6 ^ ((a6 ^ a7) & s1);
+	final long c0 = b0 ^ ((b0 ^ b1) & s2);
+	final long c1 = b2 ^ ((b2 ^ b3) & s2);
+	final long r = c0 ^ ((c0 ^ c1) & m);
+	// a count of 8 is the only one with s3 set, and s0 to s2 clear
+	final long r8 = born8 ^ (diff8 & m);
+	return r ^ ((r ^ r8) & s3);
+    }
+
+    /**
+     * Get the rule in the survival/birth form used by Life 1.05 files,
+     * followed by the number of states for Generations rules. Larger than
+     * Life rules have no such form, and are given as is.
+     *
+     * @return the rule as survival digits, a slash, and birth digits
+     */
+    String toLife105() {
+	if (range != 1) {
+	    return toString();
+	}
+	return digits(survive) + "/" + digits(born)
+	    + (states == 2 ? "" : "/" + states);
+    }
+
+    private static String digits(final BitSet set) {
+	final StringBuilder sb = new StringBuilder();
+	for (int count = set.nextSetBit(0); count >= 0;
+	     count = set.nextSetBit(count + 1)) {
+	    sb.append(count);
+	}
+	return sb.toString();
+    }
+
+    /*
+     * Write a set of counts as a Larger than Life interval, adding offset
+     * to each count. Sets that aren't a single interval can't be written,
+     * but only intervals can be parsed.
+     */
+    private static String interval(final BitSet set, final int offset) {
+	if (set.isEmpty()) {
+	    return "1..0";
+	}
+	return (set.nextSetBit(0) + offset) + ".."
+	    + (set.length() - 1 + offset);
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+	if (!(o instanceof PctRule)) {
+	    return false;
+	}
+	final PctRule other = (PctRule) o;
+	return range == other.range && states == other.states
+	    && born.equals(other.born)
+	    && survive.equals(other.survive);
+    }
+
+    @Override
+    public int hashCode() {
+	return ((range * 31 + states) * 31 + born.hashCode()) * 31
+	    + survive.hashCode();
+    }
+
+    /**
+     * Get the rulestring for this rule, in B/S form with the number of
+     * states for Generations rules, or in the Larger than Life form if the
+     * range is greater than 1.
+     *
+     * @return the rulestring
+     */
+    @Override
+    public String toString() {
+	if (range == 1) {
+	    return "B" + digits(born) + "/S" + digits(survive)
+		+ (states == 2 ? "" : "/C" + states);
+	}
+	return "R" + range + ",C0,M" + (middle ? 1 : 0)
+	    + ",S" + interval(survive, middle ? 1 : 0)
+	    + ",B" + interval(born, 0) + ",NM";
+    }
+}
@@ -0,0 +1,449 @@
+/*
+ * SPDX-License-Identifier: CDDL-1.0
+ *
+ * CDDL HEADER START
+ *
+ * This file and its contents are supplied under the terms of the
+ * Common Development and Distribution License ("CDDL"), version 1.0.
+ * You may only use this file in accordance with the terms of version
+ * 1.0 of the CDDL.
+ *
+ * A full copy of the text of the CDDL should have accompanied this
+ * source. A copy of the CDDL is also available via the Internet at
+ * http://www.illumos.org/license/CDDL.
+ *
+ * CDDL HEADER END
+ *
+ * Copyright 2026 Peter Tribble
+ *
+ */
+
+package uk.co.petertribble.life;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Run the simulation on its own thread, away from the Swing event dispatch
+ * thread, so that a slow generation never freezes the user interface.
+ *
+ * <p>Only the simulation thread touches the engine. Anything else that
+ * needs to change the engine, or the running state, is queued as a command
+ * for the simulation thread to run between generations. After each
+ * generation the board is copied into a snapshot and published; the
+ * display takes the latest snapshot and hands the previous one back for
+ * reuse, so the two sides never share a snapshot and need no locks.
+ *
+ * <p>In turbo mode the simulation runs several generations for each frame
+ * the display shows, and only the last is published. At maximum speed the
+ * simulation runs flat out, and a snapshot is only published once the
+ * display has taken the previous one.
+ *
+ * <p>The runner can also watch for the board settling into a cycle, and
+ * then pause, or start again with a new random soup, rather than run on
+ * forever showing the same few generations.
+ */
+public final class PctRunner implements Runnable {
+
+    /**
+     * The interval between frames of the display in turbo mode, in
+     * milliseconds.
+     */
+    public static final int FRAME_MILLIS = 33;
+
+    /** The engine holding the board. */
+    private final PctEngine engine;
+
+    /** Commands for the simulation thread. */
+    private final BlockingQueue<Runnable> commands =
+	new LinkedBlockingQueue<>();
+    /** The most recently published snapshot, if not yet taken. */
+    private final AtomicReference<PctSnapshot> latest =
+	new AtomicReference<>();
+    /** Snapshots handed back by the display, ready to be reused. */
+    private final ConcurrentLinkedQueue<PctSnapshot> free =
+	new ConcurrentLinkedQueue<>();
+
+    /** The statistics collected while running. */
+    private final PctStats stats = new PctStats(this);
+
+    /** The simulation thread, null until started. */
+    private volatile Thread thread;
+
+    /*
+     * The following are only used by the simulation thread, or before it
+     * has been started.
+     */
+    /** Whether the game is running, rather than paused. */
+    private boolean running;
+    /** The delay between generations, or batches, in nanoseconds. */
+    private long delayNanos;
+    /**
+     * The number of generations in each batch, or 0 to run flat out.
+     */
+    private int batchSize = 1;
+    /** The current generation. */
+    private long generation;
+    /** Finds when the board settles into a cycle, or null if not looking. */
+    private PctCycleDetector detector;
+    /** What to do when a cycle is found. */
+    private String cycleAction = PctCycleDetector.REPORT;
+    /** The density of each new soup when restarting. */
+    private double soupDensity;
+
+    /** A description of the last cycle found, or null. */
+    private volatile String cycleReport;
+
+    /**
+     * Create a runner for the given engine.
+     *
+     * @param nengine the engine to run
+     */
+    public PctRunner(final PctEngine nengine) {
+	engine = nengine;
+    }
+
+    /**
+     * Start the simulation thread, running the game.
+     *
+     * @param idelay the delay between generations in milliseconds
+     */
+    public void start(final int idelay) {
+	if (thread == null) {
+	    running = true;
+	    delayNanos = TimeUnit.MILLISECONDS.toNanos(idelay);
+	    stats.setRequested(delayNanos, batchSize);
+	    final Thread t = new Thread(this, "pctlife-simulation");
+	    t.setDaemon(true);
+	    thread = t;
+	    t.start();
+	}
+    }
+
+    /**
+     * Pause the game if it's running, restart it if paused.
+     */
+    public void stopstart() {
+	execute(e -> running = !running);
+    }
+
+    /**
+     * Set the delay between generations, leaving turbo mode.
+     *
+     * @param idelay the delay in milliseconds
+     */
+    public void setDelay(final int idelay) {
+	execute(e -> {
+	    batchSize = 1;
+	    delayNanos = TimeUnit.MILLISECONDS.toNanos(idelay);
+	    stats.setRequested(delayNanos, batchSize);
+	});
+    }
+
+    /**
+     * Enter turbo mode, running the given number of generations for each
+     * frame of the display, or running flat out.
+     *
+     * @param generations the number of generations per frame, or 0 to run
+     * as fast as possible
+     */
+    public void setTurbo(final int generations) {
+	execute(e -> {
+	    batchSize = generations;
+	    delayNanos = generations == 0 ? 0L
+		: TimeUnit.MILLISECONDS.toNanos(FRAME_MILLIS);
+	    stats.setRequested(delayNanos, batchSize);
+	});
+    }
+
+    /**
+     * Look for the board settling into a cycle of any period up to
+     * PctCycleDetector.HISTORY steps, and when it does, report it and then
+     * carry on, pause, or restart with a new random soup. With engines that
+     * keep track of the cells that changed, this only costs a look at
+     * those cells each step; otherwise it costs a copy and comparison of
+     * the board. Either way, the board published after a step is copied
+     * from the detector rather than read from the engine again.
+     *
+     * @param action PctCycleDetector.REPORT, PAUSE, or RESTART
+     * @param density the density of each new soup when restarting
+     */
+    public void detectCycles(final String action, final double density) {
+	execute(e -> {
+	    detector = new PctCycleDetector(e.getBoardSize());
+	    cycleAction = action;
+	    soupDensity = density;
+	});
+    }
+
+    /**
+     * Describe the last cycle the board was found to settle into, if any,
+     * since the board was last replaced.
+     *
+     * @return a description of the cycle, or null
+     */
+    public String getCycleReport() {
+	return cycleReport;
+    }
+
+    /**
+     * Get the statistics collected while running.
+     *
+     * @return the statistics
+     */
+    public PctStats getStats() {
+	return stats;
+    }
+
+    /**
+     * Advance the board by one step, and publish the result.
+     */
+    public void step() {
+	execute(e -> advance());
+    }
+
+    /**
+     * Start counting generations again from zero. This must only be called
+     * from a task run by execute() or call(), typically one that replaces
+     * the whole board.
+     */
+    public void resetGeneration() {
+	setGeneration(0L);
+    }
+
+    /**
+     * Set the current generation, as when a saved board is restored. This
+     * must only be called from a task run by execute() or call().
+     *
+     * @param ngeneration the generation
+     */
+    public void setGeneration(final long ngeneration) {
+	generation = ngeneration;
+	stats.setGeneration(generation);
+	if (detector != null) {
+	    detector.reset();
+	}
+	cycleReport = null;
+    }
+
+    /**
+     * Run a task against the engine, and then publish the board. Once the
+     * simulation thread has started the task is queued for it, otherwise
+     * the task is run straight away.
+     *
+     * @param task the task to run
+     */
+    public void execute(final Consumer<PctEngine> task) {
+	if (thread == null) {
+	    boardChanged();
+	    task.accept(engine);
+	    publish();
+	} else {
+	    commands.add(() -> {
+		boardChanged();
+		task.accept(engine);
+		publish();
+	    });
+	}
+    }
+
+    /**
+     * Run a task against the engine and wait for its result, then publish
+     * the board.
+     *
+     * @param <T> the type of the result
+     * @param task the task to run
+     *
+     * @return the result of the task
+     */
+    public <T> T call(final Function<PctEngine, T> task) {
+	return submit(e -> {
+	    boardChanged();
+	    final T result = task.apply(e);
+	    publish();
+	    return result;
+	});
+    }
+
+    /**
+     * Count the live cells, between generations, without publishing the
+     * board.
+     *
+     * @return the number of live cells
+     */
+    long getPopulation() {
+	return submit(PctEngine::getPopulation);
+    }
+
+    /**
+     * Describe the engine's activity, between generations.
+     *
+     * @return the engine's description of its activity, or null
+     */
+    String getActivity() {
+	return submit(PctEngine::getActivity);
+    }
+
+    /*
+     * Run a task against the engine on the simulation thread, once it has
+     * started, and wait for its result.
+     */
+    private <T> T submit(final Function<PctEngine, T> task) {
+	if (thread == null) {
+	    return task.apply(engine);
+	}
+	final FutureTask<T> future = new FutureTask<>(() -> task.apply(engine));
+	commands.add(future);
+	try {
+	    return future.get();
+	} catch (InterruptedException ie) {
+	    Thread.currentThread().interrupt();
+	    throw new IllegalStateException(ie);
+	} catch (ExecutionException ee) {
+	    throw new IllegalStateException(ee.getCause());
+	}
+    }
+
+    /**
+     * Take the most recently published snapshot, if there is a new one.
+     * The caller owns the snapshot until it hands it back with recycle().
+     *
+     * @return the latest snapshot, or null if there isn't a new one
+     */
+    public PctSnapshot takeLatest() {
+	return latest.getAndSet(null);
+    }
+
+    /**
+     * Hand back a snapshot that is no longer needed, so it can be reused.
+     *
+     * @param snapshot the snapshot to reuse
+     */
+    public void recycle(final PctSnapshot snapshot) {
+	if (snapshot != null) {
+	    free.offer(snapshot);
+	}
+    }
+
+    @Override
+    public void run() {
+	long next = System.nanoTime();
+	try {
+	    while (!Thread.currentThread().isInterrupted()) {
+		final Runnable cmd;
+		if (running) {
+		    final long wait = next - System.nanoTime();
+		    cmd = wait > 0L
+			? commands.poll(wait, TimeUnit.NANOSECONDS)
+			: commands.poll();
+		} else {
+		    cmd = commands.take();
+		}
+		if (cmd == null) {
+		    runBatch();
+		    next = System.nanoTime() + delayNanos;
+		} else {
+		    cmd.run();
+		}
+	    }
+	} catch (InterruptedException ie) {
+	    Thread.currentThread().interrupt();
+	}
+    }
+
+    /*
+     * Tell the cycle detector that a task may change the board in ways
+     * the engine doesn't keep track of.
+     */
+    private void boardChanged() {
+	if (detector != null) {
+	    detector.boardChanged();
+	}
+    }
+
+    private void advance() {
+	if (detector != null && detector.isEmpty()) {
+	    detector.update(engine, generation);
+	}
+	final long t0 = System.nanoTime();
+	engine.step();
+	final long t1 = System.nanoTime();
+	generation += engine.getGenerationsPerStep();
+	stats.recordStep(t1 - t0, generation);
+	if (detector != null && detector.update(engine, generation)) {
+	    final String report = detector.getReport();
+	    if (PctCycleDetector.PAUSE.equals(cycleAction)) {
+		running = false;
+	    } else if (PctCycleDetector.RESTART.equals(cycleAction)) {
+		PctPattern.randomize(engine, soupDensity);
+		resetGeneration();
+	    }
+	    cycleReport = report;
+	}
+    }
+
+    /*
+     * Run a batch of generations and publish the last. Running flat out,
+     * a batch is a single generation, published only if the display has
+     * taken the last snapshot, so that copying the board never slows the
+     * simulation down more than the display needs. A batch stops early if
+     * finding a cycle paused the game, and the board it stopped at is
+     * always published.
+     */
+    private void runBatch() {
+	if (batchSize == 0) {
+	    advance();
+	    if (latest.get() == null || !running) {
+		publish(detectedBoard());
+	    }
+	} else {
+	    for (int i = 0; i < batchSize && running; i++) {
+		advance();
+	    }
+	    publish(detectedBoard());
+	}
+    }
+
+    /*
+     * The cycle detector's copy of the board, if it has one of the current
+     * generation, or null. It's much quicker to copy than to read the
+     * board from most engines.
+     */
+    private PctSnapshot detectedBoard() {
+	return detector == null ? null
+	    : detector.getBoard(generation, engine.getRule());
+    }
+
+    private void publish() {
+	publish(null);
+    }
+
+    /*
+     * Copy the board into a free snapshot and publish it, from the given
+     * copy of the board if there is one, or else from the engine. If the
+     * previous snapshot was never taken, it can be reused straight away.
+     */
+    private void publish(final PctSnapshot board) {
+	PctSnapshot snapshot = free.poll();
+	if (snapshot == null) {
+	    snapshot = new PctSnapshot(engine.getBoardSize());
+	}
+	if (board == null) {
+	    snapshot.copyFrom(engine, generation);
+	} else {
+	    snapshot.copyFrom(board);
+	}
+	final PctSnapshot untaken = latest.getAndSet(snapshot);
+	if (untaken != null) {
+	    stats.frameDropped();
+	    recycle(untaken);
+	}
+    }
+}
@@ -0,0 +1,327 @@
+/*
+ * SPDX-License-Identifier: CDDL-1.0
+ *
+ * CDDL HEADER START
+ *
+ * This file and its contents are supplied under the terms of the
+ * Common Development and Distribution License ("CDDL"), version 1.0.
+ * You may only use this file in accordance with the terms of version
+ * 1.0 of the CDDL.
+ *
+ * A full copy of the text of the CDDL should have accompanied this
+ * source. A copy of the CDDL is also available via the Internet at
+ * http://www.illumos.org/license/CDDL.
+ *
+ * CDDL HEADER END
+ *
+ * Copyright 2026 Peter Tribble
+ *
+ */
+
+package uk.co.petertribble.life;
+
+import java.util.Arrays;
+
+/**
+ * A snapshot of the visible board at a given generation, with the live
+ * cells packed 64 to a long. Under Generations rules the state of every
+ * cell is held in a byte as well. Snapshots are filled in by the
+ * simulation thread and then handed over to be displayed; once handed over
+ * they are not changed until they are handed back, so they can be read
+ * without locking.
+ */
+public final class PctSnapshot {
+
+    /** The size in cells of the board. */
+    private final int boardSize;
+    /** The number of words in each row of cells. */
+    private final int words;
+    /** The cells, with a row of words for each x coordinate. */
+    private final long[] cells;
+    /**
+     * The state of each cell, with a row for each x coordinate, only used
+     * under rules with more than 2 states, and allocated when first needed.
+     */
+    private byte[] states;
+    /** The generation the snapshot was taken at. */
+    private long generation;
+    /** The rule the board was running under. */
+    private PctRule rule = PctRule.CONWAY;
+
+    /**
+     * Create an empty snapshot of a board of the given size.
+     *
+     * @param nboardSize the size of the board
+     */
+    public PctSnapshot(final int nboardSize) {
+	boardSize = nboardSize;
+	words = (boardSize + 63) / 64;
+	cells = new long[boardSize * words];
+    }
+
+    /**
+     * Copy the visible board from an engine.
+     *
+     * @param engine the engine to copy the board from
+     * @param ngeneration the current generation
+     */
+    public void copyFrom(final PctEngine engine, final long ngeneration) {
+	generation = ngeneration;
+	rule = engine.getRule();
+	if (rule.getStates() > 2) {
+	    copyStatesFrom(engine);
+	    return;
+	}
+	for (int i = 0; i < boardSize; i++) {
+	    engine.copyRow(i, cells, i * words);
+	}
+    }
+
+    /**
+     * Copy another snapshot of a board of the same size.
+     *
+     * @param other the snapshot to copy
+     */
+    public void copyFrom(final PctSnapshot other) {
+	generation = other.generation;
+	rule = other.rule;
+	System.arraycopy(other.cells, 0, cells, 0, cells.length);
+	if (rule.getStates() > 2) {
+	    allocateStates();
+	    System.arraycopy(other.states, 0, states, 0, states.length);
+	}
+    }
+
+    private void copyStatesFrom(final PctEngine engine) {
+	allocateStates();
+	for (int i = 0; i < boardSize; i++) {
+	    final int row = i * words;
+	    final int srow = i * boardSize;
+	    long word = 0L;
+	    for (int j = 0; j < boardSize; j++) {
+		final int state = engine.getState(i, j);
+		states[srow + j] = (byte) state;
+		if (state == 1) {
+		    word |= 1L << j;
+		}
+		if ((j & 63) == 63 || j == boardSize - 1) {
+		    cells[row + (j >>> 6)] = word;
+		    word = 0L;
+		}
+	    }
+	}
+    }
+
+    private void allocateStates() {
+	if (states == null) {
+	    states = new byte[boardSize * boardSize];
+	}
+    }
+
+    /**
+     * Replace the board in an engine with the cells in this snapshot, and
+     * set its rule. The rule is set first, so that if the engine can't run
+     * it the board is left as it was.
+     *
+     * @param engine the engine to copy the board to
+     *
+     * @throws IllegalArgumentException if the engine can't run the rule
+     */
+    public void copyTo(final PctEngine engine) {
+	engine.setRule(rule);
+	engine.clear();
+	if (rule.getStates() > 2) {
+	    for (int i = 0; i < boardSize; i++) {
+		for (int j = 0; j < boardSize; j++) {
+		    final int state = states[i * boardSize + j] & 0xff;
+		    if (state != 0) {
+			engine.setState(i, j, state);
+		    }
+		}
+	    }
+	    return;
+	}
+	for (int i = 0; i < boardSize; i++) {
+	    final int row = i * words;
+	    for (int w = 0; w < words; w++) {
+		long word = cells[row + w];
+		while (word != 0L) {
+		    final int j = w * 64 + Long.numberOfTrailingZeros(word);
+		    if (j < boardSize) {
+			engine.setAlive(i, j);
+		    }
+		    word &= word - 1;
+		}
+	    }
+	}
+    }
+
+    /**
+     * Get the size in cells of the board.
+     *
+     * @return the size of the board
+     */
+    public int getBoardSize() {
+	return boardSize;
+    }
+
+    /**
+     * Get the generation the snapshot was taken at.
+     *
+     * @return the generation
+     */
+    public long getGeneration() {
+	return generation;
+    }
+
+    /**
+     * Get the rule the board was running under.
+     *
+     * @return the rule
+     */
+    public PctRule getRule() {
+	return rule;
+    }
+
+    /**
+     * Set the rule the board was running under.
+     *
+     * @param nrule the rule
+     */
+    void setRule(final PctRule nrule) {
+	rule = nrule;
+    }
+
+    /**
+     * Set the generation the snapshot was taken at.
+     *
+     * @param ngeneration the generation
+     */
+    void setGeneration(final long ngeneration) {
+	generation = ngeneration;
+    }
+
+    /**
+     * Report whether the given cell was alive.
+     *
+     * @param x the x coordinate of the cell
+     * @param y the y coordinate of the cell
+     *
+     * @return true if the cell was alive
+     */
+    public boolean isAlive(final int x, final int y) {
+	return (cells[x * words + (y >>> 6)] & (1L << y)) != 0L;
+    }
+
+    /**
+     * Get the state of the given cell.
+     *
+     * @param x the x coordinate of the cell
+     * @param y the y coordinate of the cell
+     *
+     * @return 0 if the cell was dead, 1 if alive, or the dying state
+     */
+    public int getState(final int x, final int y) {
+	if (rule.getStates() > 2) {
+	    return states[x * boardSize + y] & 0xff;
+	}
+	return isAlive(x, y) ? 1 : 0;
+    }
+
+    /**
+     * Set the state of the given cell, which must currently be dead, under
+     * a rule with more than 2 states.
+     *
+     * @param x the x coordinate of the cell
+     * @param y the y coordinate of the cell
+     * @param state the state of the cell
+     */
+    void setState(final int x, final int y, final int state) {
+	allocateStates();
+	states[x * boardSize + y] = (byte) state;
+	if (state == 1) {
+	    cells[x * words + (y >>> 6)] |= 1L << y;
+	}
+    }
+
+    /**
+     * Change the state of the given cell, whatever it was before.
+     *
+     * @param x the x coordinate of the cell
+     * @param y the y coordinate of the cell
+     * @param state the new state of the cell
+     */
+    void replaceState(final int x, final int y, final int state) {
+	if (rule.getStates() > 2) {
+	    states[x * boardSize + y] = (byte) state;
+	}
+	if (state == 1) {
+	    cells[x * words + (y >>> 6)] |= 1L << y;
+	} else {
+	    cells[x * words + (y >>> 6)] &= ~(1L << y);
+	}
+    }
+
+    /**
+     * Find the cells in a word that differ from an earlier snapshot, in
+     * their state as well as whether they're alive.
+     *
+     * @param before the earlier snapshot
+     * @param x the x coordinate of the row
+     * @param w the index of the word in the row
+     *
+     * @return the cells that changed, packed in the same way as the word
+     */
+    public long getChanges(final PctSnapshot before, final int x,
+			   final int w) {
+	long changed = cells[x * words + w] ^ before.cells[x * words + w];
+	if (rule.getStates() > 2 || before.rule.getStates() > 2) {
+	    final int from = w * 64;
+	    final int to = Math.min(from + 64, boardSize);
+	    final int base = x * boardSize;
+	    if (rule.getStates() > 2 && before.rule.getStates() > 2
+		    && Arrays.mismatch(states, base + from, base + to,
+			before.states, base + from, base + to) < 0) {
+		return changed;
+	    }
+	    for (int j = from; j < to; j++) {
+		if (getState(x, j) != before.getState(x, j)) {
+		    changed |= 1L << j;
+		}
+	    }
+	}
+	return changed;
+    }
+
+    /**
+     * Get the number of words in each row of packed cells.
+     *
+     * @return the number of words per row
+     */
+    public int getWords() {
+	return words;
+    }
+
+    /**
+     * Get the word of 64 cells starting at y coordinate 64 * w in row x.
+     *
+     * @param x the x coordinate of the row
+     * @param w the index of the word in the row
+     *
+     * @return the packed cells
+     */
+    public long getWord(final int x, final int w) {
+	return cells[x * words + w];
+    }
+
+    /**
+     * Set the word of 64 cells starting at y coordinate 64 * w in row x.
+     *
+     * @param x the x coordinate of the row
+     * @param w the index of the word in the row
+     * @param word the packed cells
+     */
+    void setWord(final int x, final int w, final long word) {
+	cells[x * words + w] = word;
+    }
+}
@@ -0,0 +1,348 @@
+/*
+ * SPDX-License-Identifier: CDDL-1.0
+ *
+ * CDDL HEADER START
+ *
+ * This file and its contents are supplied under the terms of the
+ * Common Development and Distribution License ("CDDL"), version 1.0.
+ * You may only use this file in accordance with the terms of version
+ * 1.0 of the CDDL.
+ *
+ * A full copy of the text of the CDDL should have accompanied this
+ * source. A copy of the CDDL is also available via the Internet at
+ * http://www.illumos.org/license/CDDL.
+ *
+ * CDDL HEADER END
+ *
+ * Copyright 2026 Peter Tribble
+ *
+ */
+
+package uk.co.petertribble.life;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * A pctlife engine for an unbounded universe, held as a sparse map of
+ * 64x64 chunks keyed by their packed coordinates. Chunks are created as
+ * live cells reach them and freed once they die out, so memory scales with
+ * the live area of the universe rather than its bounding box.
+ *
+ * <p>Within a chunk each column of 64 cells is packed into a long, and the
+ * next generation is computed a word at a time using the same bit-parallel
+ * adders as the bit engine. The board is a window onto the universe, with
+ * the board coordinates used directly; cells may be set anywhere.
+ */
+public final class PctSparseEngine implements PctEngine {
+
+    /**
+     * The number of bits in the chunk size, which makes each column of a
+     * chunk a single long.
+     */
+    private static final int CHUNK_BITS = 6;
+    /** The size in cells of each chunk. */
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    /** The mask to get the position of a cell within a chunk. */
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    /** The size in cells of the board. */
+    private final int boardSize;
+
+    /** The chunks holding any live cells, keyed by packed coordinates. */
+    private final Map<Long, Chunk> chunks = new HashMap<>();
+
+    /** The rule used to compute each generation. */
+    private PctRule rule = PctRule.CONWAY;
+
+    /** The chunk most recently read by isAlive(). */
+    private Chunk lastChunk;
+    /** The key of the chunk most recently read by isAlive(). */
+    private long lastKey;
+
+    /** The columns of the chunk being computed, with one either side. */
+    private final long[] midCols = new long[CHUNK_SIZE + 2];
+    /** The columns of the chunk above the one being computed. */
+    private final long[] upCols = new long[CHUNK_SIZE + 2];
+    /** The columns of the chunk below the one being computed. */
+    private final long[] downCols = new long[CHUNK_SIZE + 2];
+
+    /**
+     * Construct a new PctSparseEngine, showing a board of the given size.
+     *
+     * @param nboardSize the size of the board
+     */
+    public PctSparseEngine(final int nboardSize) {
+	boardSize = nboardSize;
+    }
+
+    @Override
+    public int getBoardSize() {
+	return boardSize;
+    }
+
+    /**
+     * Get the number of chunks currently allocated.
+     *
+     * @return the number of chunks
+     */
+    public int getChunkCount() {
+	return chunks.size();
+    }
+
+    @Override
+    public String getActivity() {
+	return getChunkCount() + " chunks of " + CHUNK_SIZE + "x" + CHUNK_SIZE
+	    + " cells allocated";
+    }
+
+    @Override
+    public long getPopulation() {
+	long population = 0L;
+	for (final Chunk c : chunks.values()) {
+	    for (final long col : c.cells) {
+		population += Long.bitCount(col);
+	    }
+	}
+	return population;
+    }
+
+    @Override
+    public void clear() {
+	chunks.clear();
+	lastChunk = null;
+    }
+
+    /**
+     * Make the given cell alive. As the universe is unbounded, the cell may
+     * be anywhere, whether or not it is on the board.
+     *
+     * @param x the x coordinate of the cell
+     * @param y the y coordinate of the cell
+     */
+    @Override
+    public void setAlive(final int x, final int y) {
+	final long key = key(x >> CHUNK_BITS, y >> CHUNK_BITS);
+	final Chunk c = chunks.computeIfAbsent(key,
+		k -> new Chunk(x >> CHUNK_BITS, y >> CHUNK_BITS));
+	c.cells[x & CHUNK_MASK] |= 1L << (y & CHUNK_MASK);
+    }
+
+    @Override
+    public void setAliveRun(final int x, final int y, final int length) {
+	final long bit = 1L << (y & CHUNK_MASK);
+	final long to = Math.min((long) x + length, Integer.MAX_VALUE);
+	int i = x;
+	while (i < to) {
+	    // fill the part of the run that falls in this chunk
+	    final int cx = i >> CHUNK_BITS;
+	    final long key = key(cx, y >> CHUNK_BITS);
+	    final Chunk c = chunks.computeIfAbsent(key,
+		k -> new Chunk(cx, y >> CHUNK_BITS));
+	    final int end = (int) Math.min(to, ((long) cx + 1) << CHUNK_BITS);
+	    for (; i < end; i++) {
+		c.cells[i & CHUNK_MASK] |= bit;
+	    }
+	}
+    }
+
+    @Override
+    public boolean isAlive(final int x, final int y) {
+	final long key = key(x >> CHUNK_BITS, y >> CHUNK_BITS);
+	if (lastChunk == null || key != lastKey) {
+	    lastChunk = chunks.get(key);
+	    lastKey = key;
+	    if (lastChunk == null) {
+		return false;
+	    }
+	}
+	return (lastChunk.cells[x & CHUNK_MASK] & (1L << (y & CHUNK_MASK)))
+	    != 0L;
+    }
+
+    /*
+     * Each chunk holds a word of each row it covers, so a row of the board
+     * is a word from each chunk along it, with missing chunks empty.
+     */
+    @Override
+    public void copyRow(final int x, final long[] row, final int offset) {
+	final int n = (boardSize + CHUNK_MASK) >> CHUNK_BITS;
+	for (int w = 0; w < n; w++) {
+	    final Chunk c = chunks.get(key(x >> CHUNK_BITS, w));
+	    row[offset + w] = c == null ? 0L : c.cells[x & CHUNK_MASK];
+	}
+	if ((boardSize & CHUNK_MASK) != 0) {
+	    row[offset + n - 1] &= (1L << (boardSize & CHUNK_MASK)) - 1L;
+	}
+    }
+
+    @Override
+    public PctRule getRule() {
+	return rule;
+    }
+
+    @Override
+    public void setRule(final PctRule nrule) {
+	rule = nrule.require(1, 2);
+    }
+
+    /**
+     * Run one step of the game.
+     *
+     * <p>First, empty chunks are created next to any chunk with live cells
+     * along the shared edge, as that is the only way cells can be born in
+     * them. Then every chunk is computed, and chunks left with no live cells
+     * are freed.
+     */
+    @Override
+    public void step() {
+	final Map<Long, Chunk> added = new HashMap<>();
+	for (final Chunk c : chunks.values()) {
+	    grow(c, added);
+	}
+	chunks.putAll(added);
+	for (final Chunk c : chunks.values()) {
+	    stepChunk(c);
+	}
+	final Iterator<Chunk> iter = chunks.values().iterator();
+	while (iter.hasNext()) {
+	    final Chunk c = iter.next();
+	    c.swap();
+	    if (c.isEmpty()) {
+		iter.remove();
+	    }
+	}
+	lastChunk = null;
+    }
+
+    private static long key(final int cx, final int cy) {
+	return ((long) cx << 32) | (cy & 0xffffffffL);
+    }
+
+    private Chunk get(final int cx, final int cy) {
+	return chunks.get(key(cx, cy));
+    }
+
+    /*
+     * Create any missing neighbours of a chunk that could have cells born
+     * in them this step.
+     */
+    private void grow(final Chunk c, final Map<Long, Chunk> added) {
+	final long[] cells = c.cells;
+	long all = 0L;
+	for (final long col : cells) {
+	    all |= col;
+	}
+	final boolean west = cells[0] != 0L;
+	final boolean east = cells[CHUNK_MASK] != 0L;
+	final boolean north = (all & 1L) != 0L;
+	final boolean south = (all & (1L << CHUNK_MASK)) != 0L;
+	if (west) {
+	    need(c.cx - 1, c.cy, added);
+	}
+	if (east) {
+	    need(c.cx + 1, c.cy, added);
+	}
+	if (north) {
+	    need(c.cx, c.cy - 1, added);
+	}
+	if (south) {
+	    need(c.cx, c.cy + 1, added);
+	}
+	if ((cells[0] & 1L) != 0L) {
+	    need(c.cx - 1, c.cy - 1, added);
+	}
+	if ((cells[CHUNK_MASK] & 1L) != 0L) {
+	    need(c.cx + 1, c.cy - 1, added);
+	}
+	if ((cells[0] & (1L << CHUNK_MASK)) != 0L) {
+	    need(c.cx - 1, c.cy + 1, added);
+	}
+	if ((cells[CHUNK_MASK] & (1L << CHUNK_MASK)) != 0L) {
+	    need(c.cx + 1, c.cy + 1, added);
+	}
+    }
+
+    private void need(final int cx, final int cy,
+		      final Map<Long, Chunk> added) {
+	final long key = key(cx, cy);
+	if (!chunks.containsKey(key)) {
+	    added.computeIfAbsent(key, k -> new Chunk(cx, cy));
+	}
+    }
+
+    /*
+     * Compute the next generation of a chunk. The columns of the chunk and
+     * of the chunks above and below are gathered together with the
+     * neighbouring column on either side, so that the loop over the columns
+     * needs no special cases.
+     */
+    private void stepChunk(final Chunk c) {
+	gather(midCols, get(c.cx - 1, c.cy), c, get(c.cx + 1, c.cy));
+	gather(upCols, get(c.cx - 1, c.cy - 1), get(c.cx, c.cy - 1),
+	       get(c.cx + 1, c.cy - 1));
+	gather(downCols, get(c.cx - 1, c.cy + 1), get(c.cx, c.cy + 1),
+	       get(c.cx + 1, c.cy + 1));
+	final PctRule nrule = rule;
+	for (int r = 0; r < CHUNK_SIZE; r++) {
+	    final long u = midCols[r];
+	    final long m = midCols[r + 1];
+	    final long d = midCols[r + 2];
+	    c.next[r] = PctBitEngine.nextWord(nrule,
+		u, (u << 1) | (upCols[r] >>> 63),
+		(u >>> 1) | (downCols[r] << 63),
+		m, (m << 1) | (upCols[r + 1] >>> 63),
+		(m >>> 1) | (downCols[r + 1] << 63),
+		d, (d << 1) | (upCols[r + 2] >>> 63),
+		(d >>> 1) | (downCols[r + 2] << 63));
+	}
+    }
+
+    private static void gather(final long[] cols, final Chunk west,
+			       final Chunk mid, final Chunk east) {
+	cols[0] = west == null ? 0L : west.cells[CHUNK_MASK];
+	if (mid == null) {
+	    for (int r = 1; r <= CHUNK_SIZE; r++) {
+		cols[r] = 0L;
+	    }
+	} else {
+	    System.arraycopy(mid.cells, 0, cols, 1, CHUNK_SIZE);
+	}
+	cols[CHUNK_SIZE + 1] = east == null ? 0L : east.cells[0];
+    }
+
+    /*
+     * A chunk of the universe, with the current and next generations.
+     */
+    private static final class Chunk {
+	/** The x coordinate of the chunk, in chunks. */
+	private final int cx;
+	/** The y coordinate of the chunk, in chunks. */
+	private final int cy;
+	/** The current generation, one long per column. */
+	private long[] cells = new long[CHUNK_SIZE];
+	/** The next generation, one long per column. */
+	private long[] next = new long[CHUNK_SIZE];
+
+	Chunk(final int ncx, final int ncy) {
+	    cx = ncx;
+	    cy = ncy;
+	}
+
+	void swap() {
+	    final long[] tmp = cells;
+	    cells = next;
+	    next = tmp;
+	}
+
+	boolean isEmpty() {
+	    for (final long col : cells) {
+		if (col != 0L) {
+		    return false;
+		}
+	    }
+	    return true;
+	}
+    }
+}
@@ -48,6 +48,12 @@ public final class PctSpeedMenu extends JMenu implements ActionListener {
     private final JRadioButtonMenuItem fasterSpeed;
     /** Menu Item for the fastest speed. */
     private final JRadioButtonMenuItem fastestSpeed;
+    /** Menu Item for 10 generations per frame. */
+    private final JRadioButtonMenuItem turbo10;
+    /** Menu Item for 100 generations per frame. */
+    private final JRadioButtonMenuItem turbo100;
+    /** Menu Item to run the game as fast as possible. */
+    private final JRadioButtonMenuItem turboMax;
 
     /**
      * Create a menu to allow game speed to be selected for the given board.
@@ -81,6 +87,19 @@ public final class PctSpeedMenu extends JMenu implements ActionListener {
 	fastestSpeed.setMnemonic(KeyEvent.VK_I);
 	fastestSpeed.addActionListener(this);
 	add(fastestSpeed);
+	addSeparator();
+	turbo10 = new JRadioButtonMenuItem("x10");
+	turbo10.setMnemonic(KeyEvent.VK_1);
+	turbo10.addActionListener(this);
+	add(turbo10);
+	turbo100 = new JRadioButtonMenuItem("x100");
+	turbo100.setMnemonic(KeyEvent.VK_0);
+	turbo100.addActionListener(this);
+	add(turbo100);
+	turboMax = new JRadioButtonMenuItem("Max");
+	turboMax.setMnemonic(KeyEvent.VK_M);
+	turboMax.addActionListener(this);
+	add(turboMax);
 
 	final ButtonGroup bgroup = new ButtonGroup();
 	bgroup.add(slowSpeed);
@@ -88,6 +107,9 @@ public final class PctSpeedMenu extends JMenu implements ActionListener {
 	bgroup.add(fastSpeed);
 	bgroup.add(fasterSpeed);
 	bgroup.add(fastestSpeed);
+	bgroup.add(turbo10);
+	bgroup.add(turbo100);
+	bgroup.add(turboMax);
     }
 
     @Override
@@ -102,6 +124,12 @@ public final class PctSpeedMenu extends JMenu implements ActionListener {
 	    board.setDelay(delay / 8);
 	} else if (aev.getSource() == fastestSpeed) {
 	    board.setDelay(1);
+	} else if (aev.getSource() == turbo10) {
+	    board.setTurbo(10);
+	} else if (aev.getSource() == turbo100) {
+	    board.setTurbo(100);
+	} else if (aev.getSource() == turboMax) {
+	    board.setTurbo(0);
 	}
     }
 }
@@ -0,0 +1,205 @@
+/*
+ * SPDX-License-Identifier: CDDL-1.0
+ *
+ * CDDL HEADER START
+ *
+ * This file and its contents are supplied under the terms of the
+ * Common Development and Distribution License ("CDDL"), version 1.0.
+ * You may only use this file in accordance with the terms of version
+ * 1.0 of the CDDL.
+ *
+ * A full copy of the text of the CDDL should have accompanied this
+ * source. A copy of the CDDL is also available via the Internet at
+ * http://www.illumos.org/license/CDDL.
+ *
+ * CDDL HEADER END
+ *
+ * Copyright 2026 Peter Tribble
+ *
+ */
+
+package uk.co.petertribble.life;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Statistics for a running pctlife board, collected by its runner and the
+ * board, and exposed through JMX.
+ */
+public final class PctStats implements PctStatsMBean {
+
+    /**
+     * The interval over which the achieved rate is measured, and after
+     * which, with no steps, the rate is taken to be zero.
+     */
+    private static final long RATE_WINDOW = TimeUnit.SECONDS.toNanos(1L);
+
+    /** The runner, to count the population. */
+    private final PctRunner runner;
+    /** The time taken by each step. */
+    private final PctTimings steps = new PctTimings();
+    /** The time taken by each paint. */
+    private final PctTimings paints = new PctTimings();
+    /** The number of frames never shown. */
+    private final AtomicLong dropped = new AtomicLong();
+
+    /** The current generation. */
+    private volatile long generation;
+    /** The achieved rate over the last complete window. */
+    private volatile double rate;
+    /** The time of the last step, in nanoseconds. */
+    private volatile long lastStep = System.nanoTime();
+    /** The requested delay, in nanoseconds. */
+    private volatile long delayNanos;
+    /** The number of generations per delay, or 0 to run flat out. */
+    private volatile int batchSize = 1;
+
+    /*
+     * The following are only used by the simulation thread.
+     */
+    /** The start of the current rate window, in nanoseconds. */
+    private long windowStart = System.nanoTime();
+    /** The generation at the start of the current rate window. */
+    private long windowGeneration;
+
+    /**
+     * Create the statistics for a runner.
+     *
+     * @param nrunner the runner to collect statistics for
+     */
+    PctStats(final PctRunner nrunner) {
+	runner = nrunner;
+    }
+
+    /**
+     * Record a step of the engine. This must only be called from the
+     * simulation thread.
+     *
+     * @param nanos the time the step took, in nanoseconds
+     * @param ngeneration the generation after the step
+     */
+    void recordStep(final long nanos, final long ngeneration) {
+	steps.record(nanos);
+	final long now = System.nanoTime();
+	if (ngeneration < windowGeneration || now - lastStep > RATE_WINDOW) {
+	    // the board was replaced, or the game was paused
+	    windowStart = now - nanos;
+	    windowGeneration = generation;
+	}
+	lastStep = now;
+	generation = ngeneration;
+	if (now - windowStart >= RATE_WINDOW) {
+	    rate = (ngeneration - windowGeneration) * 1.0e9d
+		/ (now - windowStart);
+	    windowStart = now;
+	    windowGeneration = ngeneration;
+	}
+    }
+
+    /**
+     * Record that the generation was set, as when the board is replaced.
+     *
+     * @param ngeneration the new generation
+     */
+    void setGeneration(final long ngeneration) {
+	generation = ngeneration;
+	windowGeneration = ngeneration;
+    }
+
+    /**
+     * Record a paint of the board.
+     *
+     * @param nanos the time the paint took, in nanoseconds
+     */
+    void recordPaint(final long nanos) {
+	paints.record(nanos);
+    }
+
+    /**
+     * Record a snapshot that was never shown.
+     */
+    void frameDropped() {
+	dropped.incrementAndGet();
+    }
+
+    /**
+     * Record the requested speed.
+     *
+     * @param ndelayNanos the delay between generations or batches, in
+     * nanoseconds
+     * @param nbatchSize the number of generations in each batch, or 0 to
+     * run flat out
+     */
+    void setRequested(final long ndelayNanos, final int nbatchSize) {
+	delayNanos = ndelayNanos;
+	batchSize = nbatchSize;
+    }
+
+    @Override
+    public long getGeneration() {
+	return generation;
+    }
+
+    @Override
+    public long getPopulation() {
+	return runner.getPopulation();
+    }
+
+    @Override
+    public double getStepTimeLast() {
+	return steps.getLast();
+    }
+
+    @Override
+    public double getStepTimeMean() {
+	return steps.getMean();
+    }
+
+    @Override
+    public double getStepTimeP99() {
+	return steps.getP99();
+    }
+
+    @Override
+    public double getPaintTimeLast() {
+	return paints.getLast();
+    }
+
+    @Override
+    public double getPaintTimeMean() {
+	return paints.getMean();
+    }
+
+    @Override
+    public double getPaintTimeP99() {
+	return paints.getP99();
+    }
+
+    @Override
+    public double getGensPerSecond() {
+	return System.nanoTime() - lastStep > RATE_WINDOW ? 0.0d : rate;
+    }
+
+    @Override
+    public double getRequestedDelay() {
+	return delayNanos / 1.0e6d;
+    }
+
+    @Override
+    public double getRequestedGensPerSecond() {
+	final long delay = delayNanos;
+	final int batch = batchSize;
+	return batch == 0 || delay == 0L ? 0.0d : batch * 1.0e9d / delay;
+    }
+
+    @Override
+    public long getDroppedFrames() {
+	return dropped.get();
+    }
+
+    @Override
+    public String getActivity() {
+	return runner.getActivity();
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * SPDX-License-Identifier: CDDL-1.0
+ *
+ * CDDL HEADER START
+ *
+ * This file and its contents are supplied under the terms of the
+ * Common Development and Distribution License ("CDDL"), version 1.0.
+ * You may only use this file in accordance with the terms of version
+ * 1.0 of the CDDL.
+ *
+ * A full copy of the text of the CDDL should have accompanied this
+ * source. A copy of the CDDL is also available via the Internet at
+ * http://www.illumos.org/license/CDDL.
+ *
+ * CDDL HEADER END
+ *
+ * Copyright 2026 Peter Tribble
+ *
+ */
+
+package uk.co.petertribble.life;
+
+/**
+ * The management interface of a running pctlife board, for watching long
+ * runs with JConsole or Mission Control. Times are in milliseconds.
+ */
+public interface PctStatsMBean {
+
+    /**
+     * Get the current generation.
+     *
+     * @return the generation
+     */
+    long getGeneration();
+
+    /**
+     * Count the live cells. This is done on the simulation thread, between
+     * generations.
+     *
+     * @return the number of live cells
+     */
+    long getPopulation();
+
+    /**
+     * Get the time taken by the last step of the engine.
+     *
+     * @return the last step time
+     */
+    double getStepTimeLast();
+
+    /**
+     * Get the mean time taken by recent steps of the engine.
+     *
+     * @return the mean step time
+     */
+    double getStepTimeMean();
+
+    /**
+     * Get the 99th percentile of the time taken by recent steps.
+     *
+     * @return the 99th percentile step time
+     */
+    double getStepTimeP99();
+
+    /**
+     * Get the time taken by the last paint of the board.
+     *
+     * @return the last paint time
+     */
+    double getPaintTimeLast();
+
+    /**
+     * Get the mean time taken by recent paints of the board.
+     *
+     * @return the mean paint time
+     */
+    double getPaintTimeMean();
+
+    /**
+     * Get the 99th percentile of the time taken by recent paints.
+     *
+     * @return the 99th percentile paint time
+     */
+    double getPaintTimeP99();
+
+    /**
+     * Get the number of generations computed each second, over the last
+     * second or so.
+     *
+     * @return the achieved generations per second
+     */
+    double getGensPerSecond();
+
+    /**
+     * Get the delay requested between generations, or between batches of
+     * generations in turbo mode.
+     *
+     * @return the requested delay
+     */
+    double getRequestedDelay();
+
+    /**
+     * Get the number of generations per second the requested delay and
+     * turbo setting would give, if every generation were instant.
+     *
+     * @return the requested generations per second, or 0 if running as
+     * fast as possible
+     */
+    double getRequestedGensPerSecond();
+
+    /**
+     * Get the number of snapshots of the board that were replaced by a
+     * newer one before the display took them, and so were never shown.
+     *
+     * @return the number of dropped frames
+     */
+    long getDroppedFrames();
+
+    /**
+     * Describe how much of the board the engine is working on, such as the
+     * number of tiles computed in the last step. This is done on the
+     * simulation thread, between generations.
+     *
+     * @return a description of the engine's activity, or null if the
+     * engine doesn't track any
+     */
+    String getActivity();
+}
@@ -0,0 +1,298 @@
+/*
+ * SPDX-License-Identifier: CDDL-1.0
+ *
+ * CDDL HEADER START
+ *
+ * This file and its contents are supplied under the terms of the
+ * Common Development and Distribution License ("CDDL"), version 1.0.
+ * You may only use this file in accordance with the terms of version
+ * 1.0 of the CDDL.
+ *
+ * A full copy of the text of the CDDL should have accompanied this
+ * source. A copy of the CDDL is also available via the Internet at
+ * http://www.illumos.org/license/CDDL.
+ *
+ * CDDL HEADER END
+ *
+ * Copyright 2026 Peter Tribble
+ *
+ */
+
+package uk.co.petertribble.life;
+
+import java.util.Arrays;
+
+/**
+ * A pctlife engine that divides the board into square tiles and tracks
+ * which tiles changed in the last generation. A tile only needs computing
+ * if it or one of its neighbours changed, so regions of the board that are
+ * dead or have settled into still lifes cost nothing.
+ *
+ * <p>Cells are held one per byte in a flat array, with the invisible 1-cell
+ * border, and a further strip of dead cells beyond it so that cells on the
+ * border can be counted without special cases. The border cells belong to
+ * the tiles along the edges of the board.
+ */
+public final class PctTileEngine implements PctEngine {
+
+    /** The size in cells of each tile. */
+    public static final int TILE_SIZE = 32;
+
+    /** The size in cells of the board. */
+    private final int boardSize;
+    /** The distance between the start of successive rows in the arrays. */
+    private final int stride;
+    /** The number of tiles along each side of the board. */
+    private final int tiles;
+
+    /** The current generation. */
+    private byte[] cells;
+    /** The next generation. */
+    private byte[] next;
+
+    /** Whether each tile changed in the last step. */
+    private final boolean[] changed;
+    /** Whether each tile needs computing in this step. */
+    private final boolean[] active;
+    /** The number of tiles computed in the last step. */
+    private int activeTiles;
+    /** The rule used to compute each generation. */
+    private PctRule rule = PctRule.CONWAY;
+
+    /** The bands to split the work of each step into. */
+    private final PctBands bands;
+    /** Compute a band of rows of tiles. */
+    private final PctBands.Band tileBand = this::stepTileRows;
+
+    /**
+     * Construct a new PctTileEngine of the given size.
+     *
+     * @param nboardSize the size of the board
+     */
+    public PctTileEngine(final int nboardSize) {
+	this(nboardSize, new PctBands(1));
+    }
+
+    /**
+     * Construct a new PctTileEngine of the given size, splitting the work of
+     * each step into bands of rows of tiles.
+     *
+     * @param nboardSize the size of the board
+     * @param nbands the bands to split each step into
+     */
+    public PctTileEngine(final int nboardSize, final PctBands nbands) {
+	boardSize = nboardSize;
+	bands = nbands;
+	stride = boardSize + 4;
+	tiles = (boardSize + TILE_SIZE - 1) / TILE_SIZE;
+	cells = new byte[stride * stride];
+	next = new byte[stride * stride];
+	changed = new boolean[tiles * tiles];
+	active = new boolean[tiles * tiles];
+    }
+
+    @Override
+    public int getBoardSize() {
+	return boardSize;
+    }
+
+    @Override
+    public void clear() {
+	Arrays.fill(cells, (byte) 0);
+	Arrays.fill(next, (byte) 0);
+	Arrays.fill(changed, false);
+    }
+
+    @Override
+    public void setAlive(final int x, final int y) {
+	if (x >= 0 && x < boardSize && y >= 0 && y < boardSize) {
+	    cells[(x + 2) * stride + y + 2] = 1;
+	    // the two generations now differ, so the tile must be computed
+	    changed[(x / TILE_SIZE) * tiles + y / TILE_SIZE] = true;
+	}
+    }
+
+    @Override
+    public void setAliveRun(final int x, final int y, final int length) {
+	if (y >= 0 && y < boardSize) {
+	    final int from = Math.max(x, 0);
+	    final int to = (int) Math.min((long) x + length, boardSize);
+	    for (int i = from; i < to; i++) {
+		cells[(i + 2) * stride + y + 2] = 1;
+	    }
+	    if (from < to) {
+		final int ty = y / TILE_SIZE;
+		for (int tx = from / TILE_SIZE; tx <= (to - 1) / TILE_SIZE;
+		     tx++) {
+		    changed[tx * tiles + ty] = true;
+		}
+	    }
+	}
+    }
+
+    @Override
+    public boolean isAlive(final int x, final int y) {
+	return cells[(x + 2) * stride + y + 2] != 0;
+    }
+
+    /*
+     * Read the row of cells straight from the array, a byte per cell.
+     * Each cell holds 0 or 1, so it can be shifted into place without
+     * testing it.
+     */
+    @Override
+    public void copyRow(final int x, final long[] row, final int offset) {
+	final int base = (x + 2) * stride + 2;
+	for (int w = 0; w * 64 < boardSize; w++) {
+	    final int jmax = Math.min(64, boardSize - w * 64);
+	    final int start = base + w * 64;
+	    long word = 0L;
+	    for (int j = 0; j < jmax; j++) {
+		word |= (long) cells[start + j] << j;
+	    }
+	    row[offset + w] = word;
+	}
+    }
+
+    @Override
+    public PctRule getRule() {
+	return rule;
+    }
+
+    @Override
+    public void setRule(final PctRule nrule) {
+	rule = nrule.require(1, 2);
+	// a settled tile may not be settled under the new rule
+	Arrays.fill(changed, true);
+    }
+
+    /*
+     * Every tile that changed in the last step is visited, a row of the
+     * tile at a time, unless more than half of them did.
+     */
+    @Override
+    public boolean visitChanges(final RunVisitor visitor) {
+	int nchanged = 0;
+	for (final boolean c : changed) {
+	    if (c) {
+		nchanged++;
+	    }
+	}
+	if (nchanged * 2 > changed.length) {
+	    return false;
+	}
+	for (int tx = 0; tx < tiles; tx++) {
+	    for (int ty = 0; ty < tiles; ty++) {
+		if (changed[tx * tiles + ty]) {
+		    final int x1 = Math.min(boardSize, (tx + 1) * TILE_SIZE);
+		    final int y = ty * TILE_SIZE;
+		    final int length = Math.min(TILE_SIZE, boardSize - y);
+		    for (int x = tx * TILE_SIZE; x < x1; x++) {
+			visitor.visit(x, y, length);
+		    }
+		}
+	    }
+	}
+	return true;
+    }
+
+    /**
+     * Get the number of tiles that were computed in the last step.
+     *
+     * @return the number of active tiles
+     */
+    public int getActiveTiles() {
+	return activeTiles;
+    }
+
+    /**
+     * Get the total number of tiles on the board.
+     *
+     * @return the number of tiles
+     */
+    public int getTileCount() {
+	return tiles * tiles;
+    }
+
+    @Override
+    public String getActivity() {
+	return activeTiles + " of " + getTileCount()
+	    + " tiles computed in the last step";
+    }
+
+    /**
+     * Run one step of the game.
+     *
+     * <p>Only tiles that changed, or are next to one that changed, in the
+     * previous step are computed. Any other tile is unchanged in both
+     * generations, so the next generation already holds its cells.
+     */
+    @Override
+    public void step() {
+	int nactive = 0;
+	for (int tx = 0; tx < tiles; tx++) {
+	    for (int ty = 0; ty < tiles; ty++) {
+		final boolean act = nearChange(tx, ty);
+		active[tx * tiles + ty] = act;
+		if (act) {
+		    nactive++;
+		}
+	    }
+	}
+	activeTiles = nactive;
+	bands.run(0, tiles, tileBand);
+	final byte[] tmp = cells;
+	cells = next;
+	next = tmp;
+    }
+
+    private boolean nearChange(final int tx, final int ty) {
+	for (int i = Math.max(0, tx - 1); i <= Math.min(tiles - 1, tx + 1);
+		i++) {
+	    for (int j = Math.max(0, ty - 1);
+		    j <= Math.min(tiles - 1, ty + 1); j++) {
+		if (changed[i * tiles + j]) {
+		    return true;
+		}
+	    }
+	}
+	return false;
+    }
+
+    private void stepTileRows(final int from, final int to) {
+	for (int tx = from; tx < to; tx++) {
+	    for (int ty = 0; ty < tiles; ty++) {
+		final int t = tx * tiles + ty;
+		changed[t] = active[t] && stepTile(tx, ty);
+	    }
+	}
+    }
+
+    /*
+     * Compute the next generation of a tile, returning whether any of its
+     * cells changed. Tiles on the edge of the board also cover the border.
+     */
+    private boolean stepTile(final int tx, final int ty) {
+	final int x0 = tx == 0 ? -1 : tx * TILE_SIZE;
+	final int x1 = tx == tiles - 1 ? boardSize + 1 : (tx + 1) * TILE_SIZE;
+	final int y0 = ty == 0 ? -1 : ty * TILE_SIZE;
+	final int y1 = ty == tiles - 1 ? boardSize + 1 : (ty + 1) * TILE_SIZE;
+	final PctRule r = rule;
+	boolean diff = false;
+	for (int x = x0; x < x1; x++) {
+	    int idx = (x + 2) * stride + y0 + 2;
+	    for (int y = y0; y < y1; y++) {
+		final int inear = cells[idx - stride - 1] + cells[idx - stride]
+		    + cells[idx - stride + 1] + cells[idx - 1]
+		    + cells[idx + 1] + cells[idx + stride - 1]
+		    + cells[idx + stride] + cells[idx + stride + 1];
+		final byte cell = cells[idx];
+		final byte ncell = (byte) r.next(cell, inear);
+		next[idx] = ncell;
+		diff |= ncell != cell;
+		idx++;
+	    }
+	}
+	return diff;
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * SPDX-License-Identifier: CDDL-1.0
+ *
+ * CDDL HEADER START
+ *
+ * This file and its contents are supplied under the terms of the
+ * Common Development and Distribution License ("CDDL"), version 1.0.
+ * You may only use this file in accordance with the terms of version
+ * 1.0 of the CDDL.
+ *
+ * A full copy of the text of the CDDL should have accompanied this
+ * source. A copy of the CDDL is also available via the Internet at
+ * http://www.illumos.org/license/CDDL.
+ *
+ * CDDL HEADER END
+ *
+ * Copyright 2026 Peter Tribble
+ *
+ */
+
+package uk.co.petertribble.life;
+
+import java.util.Arrays;
+
+/**
+ * Record how long something took each time it ran, keeping the last time,
+ * and enough recent times to find their mean and 99th percentile.
+ * Times are recorded by one thread and read by another, so access is
+ * synchronized; recording is cheap next to what's being timed.
+ */
+final class PctTimings {
+
+    /**
+     * The number of recent times kept for the mean and percentile.
+     */
+    private static final int WINDOW = 1024;
+
+    /** The most recent times, in nanoseconds, as a ring. */
+    private final long[] recent = new long[WINDOW];
+    /** The number of times recorded. */
+    private long count;
+    /** The total of the times in the ring, in nanoseconds. */
+    private long total;
+    /** The last time recorded, in nanoseconds. */
+    private long last;
+
+    /**
+     * Record a time.
+     *
+     * @param nanos the time taken, in nanoseconds
+     */
+    synchronized void record(final long nanos) {
+	final int i = (int) (count % WINDOW);
+	total += nanos - recent[i];
+	recent[i] = nanos;
+	count++;
+	last = nanos;
+    }
+
+    /**
+     * Get the last time recorded.
+     *
+     * @return the last time, in milliseconds
+     */
+    synchronized double getLast() {
+	return last / 1.0e6d;
+    }
+
+    /**
+     * Get the mean of the recent times recorded.
+     *
+     * @return the mean time, in milliseconds, or 0 if none were recorded
+     */
+    synchronized double getMean() {
+	final long n = Math.min(count, WINDOW);
+	return n == 0L ? 0.0d : total / 1.0e6d / n;
+    }
+
+    /**
+     * Get the 99th percentile of the recent times recorded.
+     *
+     * @return the 99th percentile, in milliseconds, or 0 if none were
+     * recorded
+     */
+    synchronized double getP99() {
+	final int n = (int) Math.min(count, WINDOW);
+	if (n == 0) {
+	    return 0.0d;
+	}
+	final long[] sorted = Arrays.copyOf(recent, n);
+	Arrays.sort(sorted);
+	return sorted[(int) Math.ceil(n * 0.99d) - 1] / 1.0e6d;
+    }
+}
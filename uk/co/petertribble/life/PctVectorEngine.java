@@ -0,0 +1,326 @@
+/*
+ * SPDX-License-Identifier: CDDL-1.0
+ *
+ * CDDL HEADER START
+ *
+ * This file and its contents are supplied under the terms of the
+ * Common Development and Distribution License ("CDDL"), version 1.0.
+ * You may only use this file in accordance with the terms of version
+ * 1.0 of the CDDL.
+ *
+ * A full copy of the text of the CDDL should have accompanied this
+ * source. A copy of the CDDL is also available via the Internet at
+ * http://www.illumos.org/license/CDDL.
+ *
+ * CDDL HEADER END
+ *
+ * Copyright 2026 Peter Tribble
+ *
+ */
+
+package uk.co.petertribble.life;
+
+import java.util.Arrays;
+
+/**
+ * A pctlife engine that holds each cell in a byte, in a flat array, so
+ * that the neighbour counts of a whole run of cells in a row can be added
+ * up in SIMD lanes with the incubating Vector API, and the rule applied
+ * with a table lookup in the same lanes.
+ *
+ * <p>The Vector API needs java 17 or later, run with --add-modules
+ * jdk.incubator.vector, so the code that uses it is compiled separately
+ * and loaded only if the module is there. Otherwise, the same rows are
+ * computed by plain loops, and the results are identical. The layout is
+ * the same as the gen engine's: the invisible 1-cell border, and a
+ * further strip of dead cells beyond it, so that every cell, border
+ * included, has all its neighbours in the array.
+ */
+public final class PctVectorEngine implements PctEngine {
+
+    /**
+     * The number of entries in the rule table, enough to fill the widest
+     * vector of bytes, so that it can be loaded into a vector whole.
+     */
+    static final int TABLE_SIZE = 64;
+
+    /** The name of the class holding the SIMD kernel. */
+    private static final String VECTOR_KERNEL =
+	"uk.co.petertribble.life.PctVectorKernel";
+    /** The module holding the Vector API. */
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+
+    /** The size in cells of the board. */
+    private final int boardSize;
+    /** The distance between the start of successive rows in the arrays. */
+    private final int stride;
+
+    /** The current generation. */
+    private byte[] cells;
+    /** The next generation. */
+    private byte[] next;
+
+    /** The rule used to compute each generation. */
+    private PctRule rule = PctRule.CONWAY;
+    /**
+     * The rule as a table of the next state of a cell, indexed by twice
+     * its neighbour count plus its current state.
+     */
+    private byte[] table = ruleTable(PctRule.CONWAY);
+    /** Whether the edges wrap round, with the border as a halo. */
+    private boolean wrapped;
+
+    /** The kernel that computes each row. */
+    private final Kernel kernel;
+    /** Whether the kernel uses the Vector API. */
+    private final boolean vectorised;
+
+    /** The bands to split the work of each step into. */
+    private final PctBands bands;
+    /** Compute a band of rows. */
+    private final PctBands.Band rowBand = this::stepRows;
+
+    /**
+     * Computes a run of cells in one row of the next generation. The SIMD
+     * version needs a newer java than the rest of pctlife, so it's kept
+     * behind this interface and loaded by name.
+     */
+    interface Kernel {
+	/**
+	 * Compute the cells from, up to but not including to, of the row
+	 * starting at mid.
+	 *
+	 * @param cells the current generation
+	 * @param next the next generation
+	 * @param mid the start of the row in the arrays
+	 * @param stride the distance between the start of successive rows
+	 * @param from the first cell in the row to compute
+	 * @param to the cell in the row after the last one to compute
+	 * @param table the rule table, indexed by twice the neighbour count
+	 * plus the current state
+	 */
+	void stepRow(byte[] cells, byte[] next, int mid, int stride,
+		     int from, int to, byte[] table);
+    }
+
+    /**
+     * Construct a new PctVectorEngine of the given size.
+     *
+     * @param nboardSize the size of the board
+     */
+    public PctVectorEngine(final int nboardSize) {
+	this(nboardSize, new PctBands(1));
+    }
+
+    /**
+     * Construct a new PctVectorEngine of the given size, splitting the
+     * work of each step into bands of rows, and using SIMD if it can.
+     *
+     * @param nboardSize the size of the board
+     * @param nbands the bands to split each step into
+     */
+    public PctVectorEngine(final int nboardSize, final PctBands nbands) {
+	this(nboardSize, nbands, true);
+    }
+
+    /**
+     * Construct a new PctVectorEngine of the given size, splitting the
+     * work of each step into bands of rows. The plain loops can be asked
+     * for, to compare against.
+     *
+     * @param nboardSize the size of the board
+     * @param nbands the bands to split each step into
+     * @param simd whether to use SIMD, if the Vector API is available
+     */
+    public PctVectorEngine(final int nboardSize, final PctBands nbands,
+			   final boolean simd) {
+	boardSize = nboardSize;
+	bands = nbands;
+	stride = boardSize + 4;
+	cells = new byte[stride * stride];
+	next = new byte[stride * stride];
+	final Kernel vkernel = simd ? loadVectorKernel() : null;
+	vectorised = vkernel != null;
+	kernel = vectorised ? vkernel : PctVectorEngine::scalarRow;
+    }
+
+    /**
+     * Report whether the Vector API can be used, which needs java 17 or
+     * later, run with --add-modules jdk.incubator.vector, and a machine
+     * with vectors of at least 256 bits.
+     *
+     * @return true if the SIMD kernel can be used
+     */
+    public static boolean isVectorAvailable() {
+	return loadVectorKernel() != null;
+    }
+
+    /*
+     * Load the SIMD kernel, or return null if the module isn't there, the
+     * kernel wasn't built, or it can't run on this machine. The module is
+     * looked for first, as loading the kernel without it would fail anyway.
+     */
+    private static Kernel loadVectorKernel() {
+	if (ModuleLayer.boot().findModule(VECTOR_MODULE).isEmpty()) {
+	    return null;
+	}
+	try {
+	    return (Kernel) Class.forName(VECTOR_KERNEL)
+		.getDeclaredConstructor().newInstance();
+	} catch (ReflectiveOperationException | LinkageError
+		 | UnsupportedOperationException e) {
+	    return null;
+	}
+    }
+
+    /**
+     * Report whether this engine is using SIMD.
+     *
+     * @return true if this engine is using the Vector API
+     */
+    public boolean isVectorised() {
+	return vectorised;
+    }
+
+    @Override
+    public int getBoardSize() {
+	return boardSize;
+    }
+
+    @Override
+    public void clear() {
+	Arrays.fill(cells, (byte) 0);
+    }
+
+    @Override
+    public void setAlive(final int x, final int y) {
+	if (x >= 0 && x < boardSize && y >= 0 && y < boardSize) {
+	    cells[(x + 2) * stride + y + 2] = 1;
+	}
+    }
+
+    @Override
+    public void setAliveRun(final int x, final int y, final int length) {
+	if (y >= 0 && y < boardSize) {
+	    final int to = (int) Math.min((long) x + length, boardSize);
+	    for (int i = Math.max(x, 0); i < to; i++) {
+		cells[(i + 2) * stride + y + 2] = 1;
+	    }
+	}
+    }
+
+    @Override
+    public boolean isAlive(final int x, final int y) {
+	return cells[(x + 2) * stride + y + 2] != 0;
+    }
+
+    @Override
+    public PctRule getRule() {
+	return rule;
+    }
+
+    @Override
+    public void setRule(final PctRule nrule) {
+	rule = nrule.require(1, 2);
+	table = ruleTable(rule);
+    }
+
+    /*
+     * Flatten the rule into a table indexed by twice the neighbour count
+     * plus the current state, padded with dead cells to TABLE_SIZE.
+     */
+    private static byte[] ruleTable(final PctRule nrule) {
+	final byte[] ntable = new byte[TABLE_SIZE];
+	for (int count = 0; count <= 8; count++) {
+	    ntable[2 * count] = (byte) nrule.next(0, count);
+	    ntable[2 * count + 1] = (byte) nrule.next(1, count);
+	}
+	return ntable;
+    }
+
+    /**
+     * Run one step of the game.
+     *
+     * <p>The rows, including the border, are split into bands, and each
+     * row handed to the kernel. If the board wraps round, the border is
+     * refreshed from the opposite edges first, and only the cells of the
+     * board itself are computed.
+     */
+    @Override
+    public void step() {
+	if (wrapped) {
+	    refreshHalo();
+	    bands.run(2, boardSize + 2, rowBand);
+	} else {
+	    bands.run(1, boardSize + 3, rowBand);
+	}
+	final byte[] t = cells;
+	cells = next;
+	next = t;
+    }
+
+    @Override
+    public boolean isWrapped() {
+	return wrapped;
+    }
+
+    @Override
+    public void setWrapped(final boolean nwrapped) {
+	if (wrapped && !nwrapped) {
+	    // the halo was only ever a copy of the opposite edges
+	    for (int x = 2; x < boardSize + 2; x++) {
+		cells[x * stride + 1] = 0;
+		cells[x * stride + boardSize + 2] = 0;
+	    }
+	    Arrays.fill(cells, stride, 2 * stride, (byte) 0);
+	    Arrays.fill(cells, (boardSize + 2) * stride,
+			(boardSize + 3) * stride, (byte) 0);
+	}
+	wrapped = nwrapped;
+    }
+
+    /*
+     * Copy the edge columns into the border columns on the opposite side,
+     * then the edge rows, border included, into the opposite border rows,
+     * which fills in the corners too.
+     */
+    private void refreshHalo() {
+	for (int x = 2; x < boardSize + 2; x++) {
+	    final int row = x * stride;
+	    cells[row + 1] = cells[row + boardSize + 1];
+	    cells[row + boardSize + 2] = cells[row + 2];
+	}
+	System.arraycopy(cells, (boardSize + 1) * stride, cells, stride,
+			 stride);
+	System.arraycopy(cells, 2 * stride, cells, (boardSize + 2) * stride,
+			 stride);
+    }
+
+    private void stepRows(final int from, final int to) {
+	final Kernel k = kernel;
+	final byte[] t = table;
+	final int first = wrapped ? 2 : 1;
+	final int last = wrapped ? boardSize + 2 : boardSize + 3;
+	for (int x = from; x < to; x++) {
+	    k.stepRow(cells, next, x * stride, stride, first, last, t);
+	}
+    }
+
+    /*
+     * The plain version of the kernel, used when the Vector API isn't
+     * available, and by the SIMD kernel for the cells left over at the
+     * end of a row.
+     */
+    static void scalarRow(final byte[] cells, final byte[] next,
+			  final int mid, final int stride,
+			  final int from, final int to, final byte[] table) {
+	final int up = mid - stride;
+	final int down = mid + stride;
+	for (int y = from; y < to; y++) {
+	    final int count = cells[up + y - 1] + cells[up + y]
+		+ cells[up + y + 1] + cells[mid + y - 1] + cells[mid + y + 1]
+		+ cells[down + y - 1] + cells[down + y] + cells[down + y + 1];
+	    next[mid + y] = table[2 * count + cells[mid + y]];
+	}
+    }
+}
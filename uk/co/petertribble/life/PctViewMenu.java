@@ -0,0 +1,84 @@
+/*
+ * SPDX-License-Identifier: CDDL-1.0
+ *
+ * CDDL HEADER START
+ *
+ * This file and its contents are supplied under the terms of the
+ * Common Development and Distribution License ("CDDL"), version 1.0.
+ * You may only use this file in accordance with the terms of version
+ * 1.0 of the CDDL.
+ *
+ * A full copy of the text of the CDDL should have accompanied this
+ * source. A copy of the CDDL is also available via the Internet at
+ * http://www.illumos.org/license/CDDL.
+ *
+ * CDDL HEADER END
+ *
+ * Copyright 2026 Peter Tribble
+ *
+ */
+
+package uk.co.petertribble.life;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.KeyEvent;
+import javax.swing.JMenu;
+import javax.swing.JMenuItem;
+
+/**
+ * A menu to zoom the view of the board in and out.
+ */
+public final class PctViewMenu extends JMenu implements ActionListener {
+
+    private static final long serialVersionUID = 1L;
+
+    /** The board to zoom. */
+    private final PctBoard board;
+    /** Menu Item to zoom in. */
+    private final JMenuItem zoomIn;
+    /** Menu Item to zoom out. */
+    private final JMenuItem zoomOut;
+    /** Menu Item to fit the whole board in the view. */
+    private final JMenuItem zoomFit;
+    /** Menu Item to go back to the original cell size. */
+    private final JMenuItem zoomActual;
+
+    /**
+     * Create a menu to zoom the view of the given board.
+     *
+     * @param nboard the board to zoom
+     */
+    public PctViewMenu(final PctBoard nboard) {
+	super("View");
+	board = nboard;
+
+	setMnemonic(KeyEvent.VK_V);
+	zoomIn = new JMenuItem("Zoom In", KeyEvent.VK_I);
+	zoomIn.addActionListener(this);
+	add(zoomIn);
+	zoomOut = new JMenuItem("Zoom Out", KeyEvent.VK_O);
+	zoomOut.addActionListener(this);
+	add(zoomOut);
+	addSeparator();
+	zoomFit = new JMenuItem("Fit Board", KeyEvent.VK_F);
+	zoomFit.addActionListener(this);
+	add(zoomFit);
+	zoomActual = new JMenuItem("Actual Size", KeyEvent.VK_A);
+	zoomActual.addActionListener(this);
+	add(zoomActual);
+    }
+
+    @Override
+    public void actionPerformed(final ActionEvent aev) {
+	if (aev.getSource() == zoomIn) {
+	    board.zoomIn();
+	} else if (aev.getSource() == zoomOut) {
+	    board.zoomOut();
+	} else if (aev.getSource() == zoomFit) {
+	    board.zoomToFit();
+	} else if (aev.getSource() == zoomActual) {
+	    board.zoomToActual();
+	}
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * SPDX-License-Identifier: CDDL-1.0
+ *
+ * CDDL HEADER START
+ *
+ * This file and its contents are supplied under the terms of the
+ * Common Development and Distribution License ("CDDL"), version 1.0.
+ * You may only use this file in accordance with the terms of version
+ * 1.0 of the CDDL.
+ *
+ * A full copy of the text of the CDDL should have accompanied this
+ * source. A copy of the CDDL is also available via the Internet at
+ * http://www.illumos.org/license/CDDL.
+ *
+ * CDDL HEADER END
+ *
+ * Copyright 2026 Peter Tribble
+ *
+ */
+
+package uk.co.petertribble.life;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The SIMD kernel for the vector engine, using the incubating Vector API.
+ * This needs java 17 or later, so it's compiled separately from the rest
+ * of pctlife, and only loaded by PctVectorEngine if the
+ * jdk.incubator.vector module is there.
+ *
+ * <p>For each vector of cells along a row, the eight neighbours are loaded
+ * from the rows above and below and either side, and added up lane by
+ * lane. Twice the count plus the current state is then used to select the
+ * next state of each lane from the rule table, which is loaded whole into
+ * a vector.
+ */
+final class PctVectorKernel implements PctVectorEngine.Kernel {
+
+    /** The widest vector of bytes this machine supports. */
+    private static final VectorSpecies<Byte> SPECIES =
+	ByteVector.SPECIES_PREFERRED;
+
+    /**
+     * Construct a new PctVectorKernel, checking that the vectors are wide
+     * enough to hold the whole rule table.
+     *
+     * @throws UnsupportedOperationException if the vectors are too narrow
+     */
+    PctVectorKernel() {
+	if (SPECIES.length() < 18) {
+	    throw new UnsupportedOperationException("Vectors too narrow");
+	}
+    }
+
+    @Override
+    public void stepRow(final byte[] cells, final byte[] next, final int mid,
+			final int stride, final int from, final int to,
+			final byte[] table) {
+	final ByteVector rules = ByteVector.fromArray(SPECIES, table, 0);
+	final int up = mid - stride;
+	final int down = mid + stride;
+	final int bound = from + SPECIES.loopBound(to - from);
+	int y = from;
+	for (; y < bound; y += SPECIES.length()) {
+	    final ByteVector me = ByteVector.fromArray(SPECIES, cells, mid + y);
+	    final ByteVector count =
+		ByteVector.fromArray(SPECIES, cells, up + y - 1)
+		.add(ByteVector.fromArray(SPECIES, cells, up + y))
+		.add(ByteVector.fromArray(SPECIES, cells, up + y + 1))
+		.add(ByteVector.fromArray(SPECIES, cells, mid + y - 1))
+		.add(ByteVector.fromArray(SPECIES, cells, mid + y + 1))
+		.add(ByteVector.fromArray(SPECIES, cells, down + y - 1))
+		.add(ByteVector.fromArray(SPECIES, cells, down + y))
+		.add(ByteVector.fromArray(SPECIES, cells, down + y + 1));
+	    count.add(count).add(me).selectFrom(rules)
+		.intoArray(next, mid + y);
+	}
+	PctVectorEngine.scalarRow(cells, next, mid, stride, y, to, table);
+    }
+}